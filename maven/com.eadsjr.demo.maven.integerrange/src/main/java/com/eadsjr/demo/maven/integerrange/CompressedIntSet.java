@@ -0,0 +1,814 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of int values in the style of a Roaring bitmap, for point
+ * sets too dense or too large for a TreeSet of boxed values.
+ *
+ * The values are divided into chunks of 65536 by their high 16 bits, and each
+ * chunk that holds any values stores their low 16 bits in whichever container
+ * is smallest for them: a sorted array when there are few, a 8 KB bitmap when
+ * there are many, or a list of runs when they come in long stretches. A whole
+ * range therefore costs one four byte run per chunk it touches, so a range of
+ * a billion values takes about fifteen thousand tiny containers instead of a
+ * billion boxed values.
+ *
+ * Union and intersection work chunk by chunk, pairing containers by type, and
+ * return new sets that share nothing with their inputs. Sets are not thread
+ * safe while being modified.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class CompressedIntSet {
+    /**
+     * Arrays holding more values than this are larger than a bitmap.
+     */
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int BITMAP_BYTES = CHUNK_SIZE / 8;
+
+    /**
+     * The high 16 bits of each chunk, with the sign bit flipped so that
+     * chunks of negative values sort before the others.
+     */
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public CompressedIntSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    /**
+     * @param range a SHORT, INTEGER, or LONG range within the int values
+     * @return a new set holding every point of the range
+     * @throws IllegalArgumentException if the range does not fit in an int
+     * @throws UnsupportedOperationException if the range is BIGINT
+     */
+    public static CompressedIntSet of( IntegerRange<?> range )
+            throws IllegalArgumentException, UnsupportedOperationException {
+        CompressedIntSet set = new CompressedIntSet();
+        set.add(range);
+        return set;
+    }
+
+    /**
+     * @param ranges ranges within the int values
+     * @return a new set holding every point of the ranges
+     * @throws IllegalArgumentException if a range does not fit in an int
+     */
+    public static CompressedIntSet of( RangeSet ranges ) throws IllegalArgumentException {
+        CompressedIntSet set = new CompressedIntSet();
+        for( int i = 0; i < ranges.rangeCount(); i++ ) {
+            set.add(ranges.getLowestValue(i), ranges.getHighestValue(i));
+        }
+        return set;
+    }
+
+    /**
+     * @param value the value to add
+     */
+    public void add( int value ) {
+        int flipped = value ^ Integer.MIN_VALUE;
+        int index = chunkFor((char)(flipped >>> 16));
+        containers[index] = containers[index].add(flipped & 0xFFFF);
+    }
+
+    public void add( IntRange range ) {
+        add(range.getLowestValue(), range.getHighestValue());
+    }
+
+    /**
+     * @param range a SHORT, INTEGER, or LONG range within the int values
+     * @throws IllegalArgumentException if the range does not fit in an int
+     * @throws UnsupportedOperationException if the range is BIGINT
+     */
+    public void add( IntegerRange<?> range )
+            throws IllegalArgumentException, UnsupportedOperationException {
+        LongRange longRange = range.toLongRange();
+        add(longRange.getLowestValue(), longRange.getHighestValue());
+    }
+
+    /**
+     * Adds every value from low to high inclusive. Chunks the range covers
+     * completely become a single run.
+     *
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     * @throws IllegalArgumentException if the range does not fit in an int
+     */
+    public void add( long firstpoint, long secondpoint ) throws IllegalArgumentException {
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+        if( low < Integer.MIN_VALUE || high > Integer.MAX_VALUE )
+            throw new IllegalArgumentException("range does not fit in an int");
+        int from = (int)low ^ Integer.MIN_VALUE;
+        int to = (int)high ^ Integer.MIN_VALUE;
+        int firstKey = from >>> 16;
+        int lastKey = to >>> 16;
+        for( int key = firstKey; key <= lastKey; key++ ) {
+            int chunkFrom = key == firstKey ? from & 0xFFFF : 0;
+            int chunkTo = key == lastKey ? to & 0xFFFF : 0xFFFF;
+            int index = chunkFor((char)key);
+            containers[index] = containers[index].addRange(chunkFrom, chunkTo);
+        }
+    }
+
+    /**
+     * @param value the value to look for
+     * @return true if the value is in the set
+     */
+    public boolean contains( int value ) {
+        int flipped = value ^ Integer.MIN_VALUE;
+        int index = Arrays.binarySearch(keys, 0, size, (char)(flipped >>> 16));
+        return index >= 0 && containers[index].contains(flipped & 0xFFFF);
+    }
+
+    /**
+     * @param range a range of values
+     * @return true if every value of the range is in the set
+     */
+    public boolean containsRange( IntRange range ) {
+        int from = range.getLowestValue() ^ Integer.MIN_VALUE;
+        int to = range.getHighestValue() ^ Integer.MIN_VALUE;
+        int firstKey = from >>> 16;
+        int lastKey = to >>> 16;
+        int index = Arrays.binarySearch(keys, 0, size, (char)firstKey);
+        if( index < 0 ) return false;
+        for( int key = firstKey; key <= lastKey; key++, index++ ) {
+            if( index == size || keys[index] != key ) return false;
+            int chunkFrom = key == firstKey ? from & 0xFFFF : 0;
+            int chunkTo = key == lastKey ? to & 0xFFFF : 0xFFFF;
+            if( !containers[index].containsRange(chunkFrom, chunkTo) ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the set has no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of values in the set
+     */
+    public long cardinality() {
+        long cardinality = 0;
+        for( int i = 0; i < size; i++ ) cardinality += containers[i].cardinality();
+        return cardinality;
+    }
+
+    /**
+     * @return roughly how many bytes the set's arrays take up, not counting
+     *         object headers
+     */
+    public long sizeInBytes() {
+        long bytes = keys.length * 2L + containers.length * 8L;
+        for( int i = 0; i < size; i++ ) bytes += containers[i].sizeInBytes();
+        return bytes;
+    }
+
+    /**
+     * @param other another set
+     * @return a new set holding the values in either set
+     */
+    public CompressedIntSet union( CompressedIntSet other ) {
+        CompressedIntSet result = new CompressedIntSet(size + other.size);
+        int i = 0;
+        int j = 0;
+        while( i < size || j < other.size ) {
+            if( j == other.size || (i < size && keys[i] < other.keys[j]) ) {
+                result.append(keys[i], containers[i++].copy());
+            }
+            else if( i == size || other.keys[j] < keys[i] ) {
+                result.append(other.keys[j], other.containers[j++].copy());
+            }
+            else {
+                result.append(keys[i], Container.or(containers[i++],
+                        other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param other another set
+     * @return a new set holding the values in both sets
+     */
+    public CompressedIntSet intersection( CompressedIntSet other ) {
+        CompressedIntSet result = new CompressedIntSet(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while( i < size && j < other.size ) {
+            if( keys[i] < other.keys[j] ) i++;
+            else if( other.keys[j] < keys[i] ) j++;
+            else {
+                Container both = Container.and(containers[i], other.containers[j]);
+                if( both.cardinality() > 0 ) result.append(keys[i], both);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reports each stretch of consecutive values in ascending order. Runs
+     * that continue across chunks are reported in pieces.
+     *
+     * @param sink receives the lowest and highest value of each stretch
+     */
+    public void forEachRange( final RangeConsumer sink ) {
+        for( int i = 0; i < size; i++ ) {
+            final long base = ((long)keys[i] << 16) + Integer.MIN_VALUE;
+            containers[i].forEachRun(new RangeConsumer() {
+                @Override
+                public void accept( long lowestValue, long highestValue ) {
+                    sink.accept(base + lowestValue, base + highestValue);
+                }
+            });
+        }
+    }
+
+    /**
+     * @param action receives each value in ascending order
+     */
+    public void forEach( final IntConsumer action ) {
+        forEachRange(new RangeConsumer() {
+            @Override
+            public void accept( long lowestValue, long highestValue ) {
+                for( long value = lowestValue; value <= highestValue; value++ ) {
+                    action.accept((int)value);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the values as a RangeSet
+     */
+    public RangeSet toRangeSet() {
+        RangeSet ranges = new RangeSet();
+        forEachRange(ranges);
+        return ranges;
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        if( !(other instanceof CompressedIntSet) ) return false;
+        return toRangeSet().equals(((CompressedIntSet)other).toRangeSet());
+    }
+
+    @Override
+    public int hashCode() {
+        return toRangeSet().hashCode();
+    }
+
+    private CompressedIntSet( int capacity ) {
+        keys = new char[Math.max(capacity, 1)];
+        containers = new Container[keys.length];
+    }
+
+    /**
+     * @return the index of the chunk for the key, created empty if missing
+     */
+    private int chunkFor( char key ) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if( index >= 0 ) return index;
+        index = -index - 1;
+        ensureCapacity();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = new ArrayContainer();
+        size++;
+        return index;
+    }
+
+    private void append( char key, Container container ) {
+        ensureCapacity();
+        keys[size] = key;
+        containers[size++] = container;
+    }
+
+    private void ensureCapacity() {
+        if( size == keys.length ) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    /**
+     * The low 16 bits of the values in one chunk. Operations that may change
+     * the best representation return the container to use from then on.
+     */
+    private static abstract class Container {
+        abstract int cardinality();
+        abstract boolean contains( int low );
+        abstract boolean containsRange( int from, int to );
+        abstract Container add( int low );
+        abstract Container addRange( int from, int to );
+        abstract void forEachRun( RangeConsumer sink );
+        abstract int runCount();
+        abstract int sizeInBytes();
+        abstract Container copy();
+
+        /**
+         * @return a new bitmap holding the same values
+         */
+        BitmapContainer toBitmap() {
+            final BitmapContainer bitmap = new BitmapContainer();
+            forEachRun(new RangeConsumer() {
+                @Override
+                public void accept( long lowestValue, long highestValue ) {
+                    bitmap.addRange((int)lowestValue, (int)highestValue);
+                }
+            });
+            return bitmap;
+        }
+
+        /**
+         * @return the smallest container for these values, which may be this
+         */
+        Container optimize() {
+            int cardinality = cardinality();
+            int runs = runCount();
+            int arrayBytes = cardinality * 2;
+            int runBytes = runs * 4;
+            if( runBytes < Math.min(arrayBytes, BITMAP_BYTES) ) {
+                if( this instanceof RunContainer ) return this;
+                final RunContainer run = new RunContainer(runs);
+                forEachRun(run);
+                return run;
+            }
+            if( cardinality <= MAX_ARRAY_SIZE ) {
+                if( this instanceof ArrayContainer ) return this;
+                final ArrayContainer array = new ArrayContainer(cardinality);
+                forEachRun(new RangeConsumer() {
+                    @Override
+                    public void accept( long lowestValue, long highestValue ) {
+                        for( long low = lowestValue; low <= highestValue; low++ ) {
+                            array.values[array.cardinality++] = (char)low;
+                        }
+                    }
+                });
+                return array;
+            }
+            if( this instanceof BitmapContainer ) return this;
+            return toBitmap();
+        }
+
+        static Container or( Container a, Container b ) {
+            if( a instanceof ArrayContainer && b instanceof ArrayContainer
+                    && a.cardinality() + b.cardinality() <= MAX_ARRAY_SIZE ) {
+                return ((ArrayContainer)a).merge((ArrayContainer)b);
+            }
+            if( a instanceof RunContainer && b instanceof RunContainer ) {
+                Container result = a.copy();
+                RunContainer runs = (RunContainer)b;
+                for( int i = 0; i < runs.count; i++ ) {
+                    result = result.addRange(runs.starts[i], runs.ends[i]);
+                }
+                return result.optimize();
+            }
+            BitmapContainer result = a.toBitmap();
+            if( b instanceof BitmapContainer ) result.or((BitmapContainer)b);
+            else {
+                final BitmapContainer target = result;
+                b.forEachRun(new RangeConsumer() {
+                    @Override
+                    public void accept( long lowestValue, long highestValue ) {
+                        target.addRange((int)lowestValue, (int)highestValue);
+                    }
+                });
+            }
+            return result.optimize();
+        }
+
+        static Container and( Container a, Container b ) {
+            if( b instanceof ArrayContainer ) {
+                Container swap = a;
+                a = b;
+                b = swap;
+            }
+            if( a instanceof ArrayContainer ) return ((ArrayContainer)a).filter(b);
+            if( a instanceof RunContainer && b instanceof RunContainer ) {
+                return ((RunContainer)a).intersect((RunContainer)b).optimize();
+            }
+            BitmapContainer result = a.toBitmap();
+            result.and(b instanceof BitmapContainer ? (BitmapContainer)b : b.toBitmap());
+            return result.optimize();
+        }
+    }
+
+    /**
+     * Up to MAX_ARRAY_SIZE values in ascending order.
+     */
+    private static final class ArrayContainer extends Container {
+        char[] values;
+        int cardinality;
+
+        ArrayContainer() {
+            this(4);
+        }
+
+        ArrayContainer( int capacity ) {
+            values = new char[Math.max(capacity, 1)];
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains( int low ) {
+            return Arrays.binarySearch(values, 0, cardinality, (char)low) >= 0;
+        }
+
+        @Override
+        boolean containsRange( int from, int to ) {
+            int index = Arrays.binarySearch(values, 0, cardinality, (char)from);
+            // the values are distinct, so the range is present if its end
+            // sits exactly as far along as its length
+            int last = index + (to - from);
+            return index >= 0 && last < cardinality && values[last] == to;
+        }
+
+        @Override
+        Container add( int low ) {
+            int index = Arrays.binarySearch(values, 0, cardinality, (char)low);
+            if( index >= 0 ) return this;
+            if( cardinality == MAX_ARRAY_SIZE ) return toBitmap().add(low);
+            index = -index - 1;
+            if( cardinality == values.length ) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, MAX_ARRAY_SIZE));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = (char)low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container addRange( int from, int to ) {
+            if( cardinality == 0 ) {
+                RunContainer run = new RunContainer(1);
+                run.accept(from, to);
+                return run.optimize();
+            }
+            if( cardinality + (to - from + 1) <= MAX_ARRAY_SIZE ) {
+                for( int low = from; low <= to; low++ ) add(low);
+                return optimize();
+            }
+            return toBitmap().addRange(from, to).optimize();
+        }
+
+        @Override
+        void forEachRun( RangeConsumer sink ) {
+            int i = 0;
+            while( i < cardinality ) {
+                int start = values[i];
+                int end = start;
+                while( ++i < cardinality && values[i] == end + 1 ) end++;
+                sink.accept(start, end);
+            }
+        }
+
+        @Override
+        int runCount() {
+            int runs = 0;
+            for( int i = 0; i < cardinality; i++ ) {
+                if( i == 0 || values[i] != values[i - 1] + 1 ) runs++;
+            }
+            return runs;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return values.length * 2;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer(cardinality);
+            System.arraycopy(values, 0, copy.values, 0, cardinality);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        ArrayContainer merge( ArrayContainer other ) {
+            ArrayContainer result = new ArrayContainer(cardinality + other.cardinality);
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            char[] merged = result.values;
+            while( i < cardinality && j < other.cardinality ) {
+                char a = values[i];
+                char b = other.values[j];
+                if( a <= b ) {
+                    merged[k++] = a;
+                    i++;
+                    if( a == b ) j++;
+                }
+                else {
+                    merged[k++] = b;
+                    j++;
+                }
+            }
+            while( i < cardinality ) merged[k++] = values[i++];
+            while( j < other.cardinality ) merged[k++] = other.values[j++];
+            result.cardinality = k;
+            return result;
+        }
+
+        ArrayContainer filter( Container other ) {
+            ArrayContainer result = new ArrayContainer(cardinality);
+            for( int i = 0; i < cardinality; i++ ) {
+                if( other.contains(values[i]) ) {
+                    result.values[result.cardinality++] = values[i];
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * One bit for each of the 65536 values in the chunk.
+     */
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[CHUNK_SIZE / 64];
+        int cardinality;
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains( int low ) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        boolean containsRange( int from, int to ) {
+            return nextClearBit(from) > to;
+        }
+
+        @Override
+        Container add( int low ) {
+            long word = words[low >>> 6];
+            long bit = 1L << low;
+            if( (word & bit) == 0 ) {
+                words[low >>> 6] = word | bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container addRange( int from, int to ) {
+            int first = from >>> 6;
+            int last = to >>> 6;
+            for( int w = first; w <= last; w++ ) {
+                long mask = -1L;
+                if( w == first ) mask &= -1L << from;
+                if( w == last ) mask &= -1L >>> (63 - (to & 63));
+                long word = words[w];
+                cardinality += Long.bitCount(mask & ~word);
+                words[w] = word | mask;
+            }
+            return this;
+        }
+
+        void or( BitmapContainer other ) {
+            int count = 0;
+            for( int w = 0; w < words.length; w++ ) {
+                words[w] |= other.words[w];
+                count += Long.bitCount(words[w]);
+            }
+            cardinality = count;
+        }
+
+        void and( BitmapContainer other ) {
+            int count = 0;
+            for( int w = 0; w < words.length; w++ ) {
+                words[w] &= other.words[w];
+                count += Long.bitCount(words[w]);
+            }
+            cardinality = count;
+        }
+
+        /**
+         * @return the first value at or after from in the set, or CHUNK_SIZE
+         */
+        int nextSetBit( int from ) {
+            if( from >= CHUNK_SIZE ) return CHUNK_SIZE;
+            int w = from >>> 6;
+            long word = words[w] & (-1L << from);
+            while( word == 0 ) {
+                if( ++w == words.length ) return CHUNK_SIZE;
+                word = words[w];
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        /**
+         * @return the first value at or after from not in the set, or
+         *         CHUNK_SIZE
+         */
+        int nextClearBit( int from ) {
+            if( from >= CHUNK_SIZE ) return CHUNK_SIZE;
+            int w = from >>> 6;
+            long word = ~words[w] & (-1L << from);
+            while( word == 0 ) {
+                if( ++w == words.length ) return CHUNK_SIZE;
+                word = ~words[w];
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        void forEachRun( RangeConsumer sink ) {
+            int start = nextSetBit(0);
+            while( start < CHUNK_SIZE ) {
+                int end = nextClearBit(start);
+                sink.accept(start, end - 1);
+                start = nextSetBit(end);
+            }
+        }
+
+        @Override
+        int runCount() {
+            int runs = 0;
+            long carry = 0;
+            for( long word : words ) {
+                // a run starts at each set bit whose lower neighbour is clear
+                runs += Long.bitCount(word & ~((word << 1) | carry));
+                carry = word >>> 63;
+            }
+            return runs;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return BITMAP_BYTES;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return (BitmapContainer)copy();
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+    }
+
+    /**
+     * Sorted, disjoint, non-adjacent runs of values, each given by its first
+     * and last value. It also collects runs in order as a RangeConsumer.
+     */
+    private static final class RunContainer extends Container implements RangeConsumer {
+        char[] starts;
+        char[] ends;
+        int count;
+
+        RunContainer( int capacity ) {
+            starts = new char[Math.max(capacity, 1)];
+            ends = new char[starts.length];
+        }
+
+        /**
+         * Appends a run after all the others.
+         */
+        @Override
+        public void accept( long lowestValue, long highestValue ) {
+            if( count == starts.length ) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = (char)lowestValue;
+            ends[count++] = (char)highestValue;
+        }
+
+        @Override
+        int cardinality() {
+            int cardinality = 0;
+            for( int i = 0; i < count; i++ ) cardinality += ends[i] - starts[i] + 1;
+            return cardinality;
+        }
+
+        /**
+         * @return the index of the last run starting at or before low, or -1
+         */
+        private int runAtOrBefore( int low ) {
+            int index = Arrays.binarySearch(starts, 0, count, (char)low);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        @Override
+        boolean contains( int low ) {
+            int index = runAtOrBefore(low);
+            return index >= 0 && ends[index] >= low;
+        }
+
+        @Override
+        boolean containsRange( int from, int to ) {
+            int index = runAtOrBefore(from);
+            return index >= 0 && ends[index] >= to;
+        }
+
+        @Override
+        Container add( int low ) {
+            return addRange(low, low);
+        }
+
+        @Override
+        Container addRange( int from, int to ) {
+            // the runs that overlap or touch [from, to] collapse into one
+            int first = 0;
+            while( first < count && ends[first] < from - 1 ) first++;
+            int end = first;
+            while( end < count && starts[end] <= to + 1 ) end++;
+            if( first < end ) {
+                from = Math.min(from, starts[first]);
+                to = Math.max(to, ends[end - 1]);
+            }
+            int newCount = count - (end - first) + 1;
+            if( newCount > starts.length ) {
+                starts = Arrays.copyOf(starts, Math.max(newCount, count * 2));
+                ends = Arrays.copyOf(ends, starts.length);
+            }
+            System.arraycopy(starts, end, starts, first + 1, count - end);
+            System.arraycopy(ends, end, ends, first + 1, count - end);
+            starts[first] = (char)from;
+            ends[first] = (char)to;
+            count = newCount;
+            return count * 4 > BITMAP_BYTES ? optimize() : this;
+        }
+
+        RunContainer intersect( RunContainer other ) {
+            RunContainer result = new RunContainer(Math.max(count, other.count));
+            int i = 0;
+            int j = 0;
+            while( i < count && j < other.count ) {
+                int start = Math.max(starts[i], other.starts[j]);
+                int end = Math.min(ends[i], other.ends[j]);
+                if( start <= end ) result.accept(start, end);
+                if( ends[i] < other.ends[j] ) i++;
+                else j++;
+            }
+            return result;
+        }
+
+        @Override
+        void forEachRun( RangeConsumer sink ) {
+            for( int i = 0; i < count; i++ ) sink.accept(starts[i], ends[i]);
+        }
+
+        @Override
+        int runCount() {
+            return count;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return starts.length * 4;
+        }
+
+        @Override
+        Container copy() {
+            RunContainer copy = new RunContainer(count);
+            System.arraycopy(starts, 0, copy.starts, 0, count);
+            System.arraycopy(ends, 0, copy.ends, 0, count);
+            copy.count = count;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out contiguous blocks of IDs from a range and takes them back,
+ * without a single lock that every thread contends on.
+ *
+ * The ID space is split into stripes, each owning one part of it and keeping
+ * its free IDs in a RangeSet behind its own lock. Released blocks always go
+ * back to the stripe that owns them, where they coalesce with their free
+ * neighbours. Each thread is given a home stripe in turn and only moves on to
+ * the others when its home stripe cannot satisfy a request. A request that no
+ * stripe can satisfy alone, such as one larger than a stripe, is looked for
+ * across neighbouring stripes with all of them locked, so any run of free IDs
+ * in the space can be handed out.
+ *
+ * Small requests rarely reach a stripe at all. Each thread leases a chunk of
+ * IDs for itself and carves small blocks off it without locking, taking a
+ * fresh chunk when it runs dry. A thread's unused chunk stays leased until it
+ * calls flush(), so threads should flush before they finish.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class IdBlockAllocator {
+    private static final String BLOCK_OUTSIDE_SPACE = "block is outside the ID space";
+    private static final String BLOCK_ALREADY_FREE = "block is already free";
+
+    private final Stripe[] stripes;
+    private final long[] stripeLows;
+    private final long spaceLow;
+    private final long spaceHigh;
+    private final long chunkSize;
+    private final AtomicInteger nextHome = new AtomicInteger();
+    private final ThreadLocal<Chunk> chunks = new ThreadLocal<Chunk>() {
+        @Override
+        protected Chunk initialValue() {
+            return new Chunk(Math.floorMod(nextHome.getAndIncrement(), stripes.length));
+        }
+    };
+
+    /**
+     * @param space the IDs to allocate, which must not be BIGINT
+     * @param stripeCount how many parts to split the space into, usually
+     *        about the number of threads allocating
+     * @param chunkSize how many IDs each thread leases at once; requests of
+     *        this size or more go straight to the stripes
+     * @throws IllegalArgumentException if stripeCount or chunkSize is not
+     *         positive
+     * @throws UnsupportedOperationException if the space is BIGINT
+     */
+    public IdBlockAllocator( IntegerRange<?> space, int stripeCount, long chunkSize )
+            throws IllegalArgumentException, UnsupportedOperationException {
+        if( chunkSize < 1 )
+            throw new IllegalArgumentException("chunk size must be positive");
+        LongRange whole = space.toLongRange();
+        spaceLow = whole.getLowestValue();
+        spaceHigh = whole.getHighestValue();
+        this.chunkSize = chunkSize;
+
+        List<? extends IntegerRange<?>> parts = space.split(stripeCount);
+        stripes = new Stripe[parts.size()];
+        stripeLows = new long[parts.size()];
+        for( int i = 0; i < stripes.length; i++ ) {
+            LongRange part = parts.get(i).toLongRange();
+            stripes[i] = new Stripe(part);
+            stripeLows[i] = part.getLowestValue();
+        }
+    }
+
+    /**
+     * @return the number of stripes the space was split into, which is less
+     *         than asked for only when the space is smaller than that
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Leases a block of consecutive IDs.
+     *
+     * @param size the number of IDs wanted
+     * @return the block, or null if there are not that many consecutive IDs
+     *         free in the stripes, counting runs that cross from one stripe
+     *         into the next
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public LongRange allocate( long size ) throws IllegalArgumentException {
+        if( size < 1 )
+            throw new IllegalArgumentException("size must be positive");
+        Chunk chunk = chunks.get();
+        if( size >= chunkSize ) return take(chunk.home, size);
+
+        if( !chunk.has(size) ) {
+            chunk.returnTo(this);
+            LongRange fresh = take(chunk.home, chunkSize);
+            if( fresh == null ) return take(chunk.home, size);
+            chunk.fill(fresh);
+        }
+        long low = chunk.low;
+        long high = low + (size - 1);
+        if( high == chunk.high ) chunk.clear();
+        else chunk.low = high + 1;
+        return new LongRange(low, high);
+    }
+
+    /**
+     * Returns a block to the stripes that own it, where it merges with any
+     * free IDs next to it. A block spanning several stripes is checked whole
+     * before any of it is freed, so a failed release changes nothing.
+     *
+     * Only the stripes are checked: IDs that are still unused in some
+     * thread's chunk are not free in any stripe, so releasing them is not
+     * detected, and they would then be handed out twice.
+     *
+     * @param block a block returned by allocate(), or any part of one
+     * @throws IllegalArgumentException if the block lies outside the space,
+     *         or some of it is already free
+     */
+    public void release( LongRange block ) throws IllegalArgumentException {
+        release(block.getLowestValue(), block.getHighestValue());
+    }
+
+    private void release( long low, long high ) throws IllegalArgumentException {
+        if( low < spaceLow || high > spaceHigh )
+            throw new IllegalArgumentException(BLOCK_OUTSIDE_SPACE);
+        int first = stripeOf(low);
+        int last = stripeOf(high);
+        // a block from allocate() lies in one stripe, but parts may be merged
+        if( first == last ) {
+            stripes[first].give(low, high);
+            return;
+        }
+        // locked in order, so two such releases cannot deadlock
+        for( int k = first; k <= last; k++ ) stripes[k].lock.lock();
+        try {
+            for( int k = first; k <= last; k++ ) {
+                if( stripes[k].free.overlapsRange(Math.max(low, stripeLows[k]),
+                        Math.min(high, stripes[k].high)) )
+                    throw new IllegalArgumentException(BLOCK_ALREADY_FREE);
+            }
+            for( int k = first; k <= last; k++ ) {
+                stripes[k].free.add(Math.max(low, stripeLows[k]),
+                        Math.min(high, stripes[k].high));
+            }
+        }
+        finally {
+            for( int k = last; k >= first; k-- ) stripes[k].lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the calling thread's unused chunk to the stripes. Call this
+     * before a thread that allocated stops doing so, or its chunk is never
+     * reused.
+     */
+    public void flush() {
+        chunks.get().returnTo(this);
+    }
+
+    /**
+     * @return a snapshot of the IDs free in the stripes, not counting those
+     *         in threads' chunks
+     */
+    public RangeSet freeRanges() {
+        RangeSet result = new RangeSet();
+        for( Stripe stripe : stripes ) {
+            stripe.lock.lock();
+            try {
+                result = result.union(stripe.free);
+            }
+            finally {
+                stripe.lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Takes a block from the home stripe, or failing that from the others in
+     * turn, or failing that from a run that crosses stripes.
+     */
+    private LongRange take( int home, long size ) {
+        for( int i = 0; i < stripes.length; i++ ) {
+            int index = home + i;
+            if( index >= stripes.length ) index -= stripes.length;
+            LongRange block = stripes[index].take(size);
+            if( block != null ) return block;
+        }
+        return takeAcrossStripes(size);
+    }
+
+    /**
+     * Takes the first run of at least size free IDs, joining each stripe's
+     * last free run to the next stripe's first where they meet. Every stripe
+     * is locked, in order as release() does, so this is kept for requests
+     * that no single stripe can satisfy.
+     *
+     * @return the block taken, or null if no run is long enough
+     */
+    private LongRange takeAcrossStripes( long size ) {
+        for( Stripe stripe : stripes ) stripe.lock.lock();
+        try {
+            boolean inRun = false;
+            long runLow = 0;
+            for( Stripe stripe : stripes ) {
+                int count = stripe.free.rangeCount();
+                for( int i = 0; i < count; i++ ) {
+                    long low = stripe.free.getLowestValue(i);
+                    long high = stripe.free.getHighestValue(i);
+                    // runs inside a stripe are already merged
+                    if( !inRun || low != stripe.low ) runLow = low;
+                    inRun = high == stripe.high;
+                    // compared unsigned, as in Stripe.take
+                    if( Long.compareUnsigned(high - runLow, size - 1) >= 0 ) {
+                        long blockHigh = runLow + (size - 1);
+                        for( Stripe part : stripes ) {
+                            if( part.high < runLow || part.low > blockHigh ) continue;
+                            part.free.remove(Math.max(runLow, part.low),
+                                    Math.min(blockHigh, part.high));
+                        }
+                        return new LongRange(runLow, blockHigh);
+                    }
+                }
+                if( count == 0 ) inRun = false;
+            }
+            return null;
+        }
+        finally {
+            for( int k = stripes.length - 1; k >= 0; k-- ) stripes[k].lock.unlock();
+        }
+    }
+
+    private int stripeOf( long value ) {
+        int low = 0;
+        int high = stripeLows.length - 1;
+        while( low < high ) {
+            int middle = (low + high + 1) >>> 1;
+            if( stripeLows[middle] <= value ) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    /**
+     * One part of the space and the IDs in it that are free.
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final RangeSet free = new RangeSet();
+        final long low;
+        final long high;
+
+        Stripe( LongRange part ) {
+            low = part.getLowestValue();
+            high = part.getHighestValue();
+            free.add(part);
+        }
+
+        /**
+         * Removes the first free run of at least size IDs.
+         *
+         * @return the block taken, or null if no run is long enough
+         */
+        LongRange take( long size ) {
+            lock.lock();
+            try {
+                int count = free.rangeCount();
+                for( int i = 0; i < count; i++ ) {
+                    long low = free.getLowestValue(i);
+                    // compared unsigned, as a run may hold more than
+                    // Long.MAX_VALUE IDs
+                    if( Long.compareUnsigned(free.getHighestValue(i) - low,
+                            size - 1) >= 0 ) {
+                        long high = low + (size - 1);
+                        free.remove(low, high);
+                        return new LongRange(low, high);
+                    }
+                }
+                return null;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        void give( long low, long high ) throws IllegalArgumentException {
+            lock.lock();
+            try {
+                if( free.overlapsRange(low, high) )
+                    throw new IllegalArgumentException(BLOCK_ALREADY_FREE);
+                free.add(low, high);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The IDs a thread has leased but not yet handed out.
+     */
+    private static final class Chunk {
+        final int home;
+        long low;
+        long high;
+        boolean empty = true;
+
+        Chunk( int home ) {
+            this.home = home;
+        }
+
+        boolean has( long size ) {
+            return !empty && Long.compareUnsigned(high - low, size - 1) >= 0;
+        }
+
+        void fill( LongRange block ) {
+            low = block.getLowestValue();
+            high = block.getHighestValue();
+            empty = false;
+        }
+
+        void clear() {
+            empty = true;
+        }
+
+        void returnTo( IdBlockAllocator allocator ) {
+            if( empty ) return;
+            empty = true;
+            allocator.release(low, high);
+        }
+    }
+}
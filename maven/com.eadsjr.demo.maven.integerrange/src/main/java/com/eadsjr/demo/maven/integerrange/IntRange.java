@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.SortedSet;
+
+/**
+ * An inclusive range of int values stored as two primitives. It answers the
+ * same questions as IntegerRange for the SHORT and INTEGER types without boxing
+ * or type dispatch, so the checks are small enough to be inlined.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class IntRange {
+    /**
+     * Represents the lowest value included in the range
+     */
+    private final int lowestValue;
+
+    /**
+     * Represents the highest value included in the range
+     */
+    private final int highestValue;
+
+    public int getLowestValue() { return lowestValue; }
+    public int getHighestValue() { return highestValue; }
+
+    /**
+     * Creates a range from zero to given value.
+     *
+     * @param range endpoint of the range
+     */
+    public IntRange( int range ) {
+        this(0, range);
+    }
+
+    /**
+     * Creates a range with the given endpoints, inclusive. The endpoints may
+     * be given in either order.
+     *
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     */
+    public IntRange( int firstpoint, int secondpoint ) {
+        if( firstpoint > secondpoint ) {
+            lowestValue = secondpoint;
+            highestValue = firstpoint;
+        }
+        else {
+            lowestValue = firstpoint;
+            highestValue = secondpoint;
+        }
+    }
+
+    /**
+     * @param value a point to check
+     * @return true if the point is within the range
+     */
+    public boolean contains( int value ) {
+        return lowestValue <= value && value <= highestValue;
+    }
+
+    /**
+     * Determines if all the values are within the bounds of the range, with a
+     * single min/max pass over the array.
+     *
+     * @param values the values to check
+     * @return true if every value is in the range, or there are none
+     */
+    public boolean contains( int[] values ) {
+        return PointArrays.allWithin(values, lowestValue, highestValue);
+    }
+
+    /**
+     * Determines if the provided range is completely within the bounds of
+     * this range.
+     *
+     * @param range another range
+     * @return true if range is fully contained
+     */
+    public boolean containsRange( IntRange range ) {
+        return lowestValue <= range.lowestValue
+                && range.highestValue <= highestValue;
+    }
+
+    /**
+     * Determines whether the ranges overlap at any point.
+     *
+     * @param range another range
+     * @return true if any point is shared between the ranges
+     */
+    public boolean overlaps( IntRange range ) {
+        return lowestValue <= range.highestValue
+                && range.lowestValue <= highestValue;
+    }
+
+    /**
+     * @return the number of points in the range
+     */
+    public long size() {
+        return (long)highestValue - lowestValue + 1;
+    }
+
+    /**
+     * @return the same range as a LongRange
+     */
+    public LongRange toLongRange() {
+        return new LongRange(lowestValue, highestValue);
+    }
+
+    /**
+     * @return a lazy read-only sorted set view of the points
+     */
+    public SortedSet<Integer> points() {
+        return new RangePointSet<Integer>(IntegerRange.RangeType.INTEGER,
+                lowestValue, highestValue);
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        if( !(other instanceof IntRange) ) return false;
+        IntRange range = (IntRange)other;
+        return lowestValue == range.lowestValue
+                && highestValue == range.highestValue;
+    }
+
+    @Override
+    public int hashCode() {
+        return lowestValue * 31 + highestValue;
+    }
+
+    /**
+     * @return the range in inclusive mathematical notation, e.g. "[2,5]"
+     */
+    @Override
+    public String toString() {
+        return "[" + lowestValue + "," + highestValue + "]";
+    }
+}
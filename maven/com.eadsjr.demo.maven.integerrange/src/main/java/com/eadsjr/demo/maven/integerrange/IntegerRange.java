@@ -20,6 +20,7 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 
 /**
@@ -28,6 +29,10 @@ import java.util.TreeSet;
  * any of its accepted types. In its current form only IntegerRanges of the same
  * type may be compared in any fashion.
  * 
+ * For hot paths over SHORT, INTEGER or LONG values prefer IntRange and
+ * LongRange, which hold primitive endpoints and avoid boxing entirely; this
+ * class remains the general form and the only one that handles BigIntegers.
+ * 
  * @author Jason Randolph Eads <jeads442@gmail.com>
  * @param <T>
  */
@@ -35,18 +40,18 @@ public class IntegerRange<T extends Number & Comparable<T>> {
     /**
      * Represents the lowest value included in the range
      */
-    private T lowestValue;
+    private final T lowestValue;
     
     /**
      * Represents the highest value included in the range
      */
-    private T highestValue;
+    private final T highestValue;
     
     public T getLowestValue() { return lowestValue; }    
     public T getHighestValue() { return highestValue; }
     
     public enum RangeType { SHORT, INTEGER, LONG, BIGINT };
-    private RangeType rangeType;
+    private final RangeType rangeType;
     
     private static String MALFORMED_RANGE_STRING = "malformed range string";
     private static String RANGE_STRING_NUMBERS_INVERTED = "range string numbers inverted";
@@ -54,46 +59,42 @@ public class IntegerRange<T extends Number & Comparable<T>> {
     private static String PROVIDED_TYPE_NOT_OF_KNOWN_INTERGER_TYPE = "provided type not of known integer type";
     private static String ENDPOINTS_MUST_BE_OF_SAME_TYPE = "endpoints must be of same type";
     private static String INCOMPATIBLE_ARGUMENT_TYPE = "incompatible argument type";
+    private static String BIGINT_NOT_SUPPORTED = "operation not supported for BIGINT ranges";
+    private static String PARTS_MUST_BE_POSITIVE = "parts must be positive";
     
     public RangeType getRangeType() { return rangeType; }
 
     private RangeType determineTypeFromObject( T theObject ) throws Exception {
-        RangeType type;
-        switch (theObject.getClass().getName()) {
-            case "java.lang.Integer":
-                type = RangeType.INTEGER;
-                break;
-            case "java.lang.Short":
-                type = RangeType.SHORT;
-                break;
-            case "java.lang.Long":
-                type = RangeType.LONG;
-                break;
-            case "java.math.BigInteger":
-                type = RangeType.BIGINT;
-                break;
-            default:
-                throw new Exception(PROVIDED_TYPE_NOT_OF_KNOWN_INTERGER_TYPE);
-        }
-        return type;
+        // instanceof checks are cheaper than comparing class names
+        if( theObject instanceof Integer ) return RangeType.INTEGER;
+        if( theObject instanceof Short ) return RangeType.SHORT;
+        if( theObject instanceof Long ) return RangeType.LONG;
+        if( theObject instanceof BigInteger ) return RangeType.BIGINT;
+        throw new Exception(PROVIDED_TYPE_NOT_OF_KNOWN_INTERGER_TYPE);
     }
     
     /**
-     * Constructs the Integer range, using the two endpoints provided.
-     * 
-     * @param firstpoint
-     * @param secondpoint
-     * @throws Exception 
+     * @return the lower of two endpoints
      */
-    private void construct( T firstpoint, T secondpoint ) throws Exception {
-        if( firstpoint.compareTo(secondpoint) > 0 ) {
-            lowestValue = secondpoint;
-            highestValue = firstpoint;
-        }
-        else {
-            lowestValue = firstpoint;
-            highestValue = secondpoint;
-        }
+    private static <T extends Comparable<T>> T lower( T firstpoint, T secondpoint ) {
+        return firstpoint.compareTo(secondpoint) > 0 ? secondpoint : firstpoint;
+    }
+    
+    /**
+     * @return the higher of two endpoints
+     */
+    private static <T extends Comparable<T>> T higher( T firstpoint, T secondpoint ) {
+        return firstpoint.compareTo(secondpoint) > 0 ? firstpoint : secondpoint;
+    }
+    
+    /**
+     * Creates a range from endpoints already known to be ordered and of the
+     * given type, as produced by split().
+     */
+    private IntegerRange( RangeType rangeType, T lowestValue, T highestValue ) {
+        this.rangeType = rangeType;
+        this.lowestValue = lowestValue;
+        this.highestValue = highestValue;
     }
     
     /**
@@ -103,19 +104,22 @@ public class IntegerRange<T extends Number & Comparable<T>> {
      */
     public IntegerRange ( T range ) throws Exception {
         rangeType = determineTypeFromObject(range);
+        T zero;
         switch(rangeType) {
             case SHORT:
-                construct((T)Short.valueOf((short)0), range);
+                zero = (T)Short.valueOf((short)0);
                 break;
             case INTEGER:
-                construct((T)Integer.valueOf(0), range);
+                zero = (T)Integer.valueOf(0);
                 break;
             case LONG:
-                construct((T)Long.valueOf(0), range);
+                zero = (T)Long.valueOf(0);
                 break;
-            case BIGINT:
-                construct((T)BigInteger.ZERO, range );
+            default:
+                zero = (T)BigInteger.ZERO;
         }
+        lowestValue = lower(zero, range);
+        highestValue = higher(zero, range);
     }
 
     
@@ -131,7 +135,8 @@ public class IntegerRange<T extends Number & Comparable<T>> {
        if(!firstpoint.getClass().equals(secondpoint.getClass()))
            throw new IllegalArgumentException(ENDPOINTS_MUST_BE_OF_SAME_TYPE);
        rangeType = determineTypeFromObject(firstpoint);
-       construct(firstpoint, secondpoint); 
+       lowestValue = lower(firstpoint, secondpoint);
+       highestValue = higher(firstpoint, secondpoint);
     }
     
     /**
@@ -170,6 +175,9 @@ public class IntegerRange<T extends Number & Comparable<T>> {
         else throw new IllegalArgumentException(MALFORMED_RANGE_STRING);
 
         // collect endpoint numbers
+        RangeType type;
+        T low;
+        T high;
         try {
             String [] rangeNumbers = range.split(",");
             String firstRangeNumberString = rangeNumbers[0].substring(1);
@@ -197,14 +205,14 @@ public class IntegerRange<T extends Number & Comparable<T>> {
              * More code would be needed to more precisely choose types, but
              * would be largely unnecessary and wasteful in this case.
              */
-            if( longestRangeNumberString > 20 ) rangeType = RangeType.BIGINT;
-            else if( longestRangeNumberString > 9 ) rangeType = RangeType.LONG;
-            else if( longestRangeNumberString > 4 ) rangeType = RangeType.INTEGER;
-            else rangeType = RangeType.SHORT;
+            if( longestRangeNumberString > 20 ) type = RangeType.BIGINT;
+            else if( longestRangeNumberString > 9 ) type = RangeType.LONG;
+            else if( longestRangeNumberString > 4 ) type = RangeType.INTEGER;
+            else type = RangeType.SHORT;
             
             T firstRangeNumber;
             T secondRangeNumber;
-            switch(rangeType) {
+            switch(type) {
             case SHORT:
                 firstRangeNumber = (T)Short.valueOf(firstRangeNumberString);
                 secondRangeNumber = (T)Short.valueOf(secondRangeNumberString);
@@ -228,60 +236,123 @@ public class IntegerRange<T extends Number & Comparable<T>> {
             if( firstRangeNumber.compareTo(secondRangeNumber) > 0)
                 throw new IllegalArgumentException(RANGE_STRING_NUMBERS_INVERTED);
             else {
-                lowestValue = firstRangeNumber;
-                highestValue = secondRangeNumber;
+                low = firstRangeNumber;
+                high = secondRangeNumber;
             }
         }
         catch ( NumberFormatException e ) { throw new IllegalArgumentException(MALFORMED_RANGE_STRING); }
         
         // adjust for inclusiveness at ends, abort if empty set results
-        switch(rangeType) {
+        switch(type) {
             case SHORT:
                 if( !lowestValueInclusive )
-                    lowestValue = (T)Short.valueOf((short)(lowestValue.shortValue() + (short)1));
+                    low = (T)Short.valueOf((short)(low.shortValue() + (short)1));
                 if( !highestValueInclusive )
-                    highestValue = (T)Short.valueOf((short)(highestValue.shortValue() - (short)1));
-                if( lowestValue.shortValue() > highestValue.shortValue() )
+                    high = (T)Short.valueOf((short)(high.shortValue() - (short)1));
+                if( low.shortValue() > high.shortValue() )
                     throw new IllegalArgumentException(RANGE_STRING_DEFINES_EMPTY_SET);
                 break;
             case INTEGER:
                 if( !lowestValueInclusive )
-                    lowestValue = (T)Integer.valueOf(lowestValue.intValue() + 1);
+                    low = (T)Integer.valueOf(low.intValue() + 1);
                 if( !highestValueInclusive )
-                    highestValue = (T)Integer.valueOf(highestValue.intValue() - 1);
-                if( lowestValue.intValue()> highestValue.intValue() )
+                    high = (T)Integer.valueOf(high.intValue() - 1);
+                if( low.intValue()> high.intValue() )
                     throw new IllegalArgumentException(RANGE_STRING_DEFINES_EMPTY_SET);
                 break;
             case LONG:
                 if( !lowestValueInclusive )
-                    lowestValue = (T)Long.valueOf(lowestValue.longValue() + 1);
+                    low = (T)Long.valueOf(low.longValue() + 1);
                 if( !highestValueInclusive )
-                    highestValue = (T)Long.valueOf(highestValue.longValue() - 1);
-                if( lowestValue.longValue()> highestValue.longValue() )
+                    high = (T)Long.valueOf(high.longValue() - 1);
+                if( low.longValue()> high.longValue() )
                     throw new IllegalArgumentException(RANGE_STRING_DEFINES_EMPTY_SET);
                 break;
             case BIGINT:
                 if( !lowestValueInclusive )
-                    lowestValue = (T)((BigInteger)lowestValue).add(BigInteger.ONE);
+                    low = (T)((BigInteger)low).add(BigInteger.ONE);
                 if( !highestValueInclusive )
-                    highestValue = (T)((BigInteger)highestValue).subtract(BigInteger.ONE);
-                if( lowestValue.compareTo(highestValue) > 0 )
+                    high = (T)((BigInteger)high).subtract(BigInteger.ONE);
+                if( low.compareTo(high) > 0 )
                     throw new IllegalArgumentException(RANGE_STRING_DEFINES_EMPTY_SET);
                 break;
             default:
                 throw new Exception(PROVIDED_TYPE_NOT_OF_KNOWN_INTERGER_TYPE);
         }
-        // Does not require call to construct()
+        rangeType = type;
+        lowestValue = low;
+        highestValue = high;
+    }
+    
+    /**
+     * Shared instances handed out by of() and parse()
+     */
+    private static final RangeCache CACHE = new RangeCache(4096);
+    
+    /**
+     * @return the cache behind of() and parse(), for its statistics
+     */
+    public static RangeCache getCache() { return CACHE; }
+    
+    /**
+     * Returns a range with the given endpoints, inclusive, reusing a shared
+     * instance when the same range was asked for recently. Ranges are never
+     * modified after construction, so the instance is safe to share.
+     * 
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     * @return the range
+     * @throws java.lang.Exception 
+     * @throws java.lang.IllegalArgumentException
+     */
+    public static <T extends Number & Comparable<T>> IntegerRange<T> of( T firstpoint, T secondpoint )
+            throws IllegalArgumentException, Exception {
+        Object key = RangeCache.endpointKey(firstpoint, secondpoint);
+        IntegerRange<T> range = (IntegerRange<T>)CACHE.get(key);
+        if( range != null ) return range;
+        return (IntegerRange<T>)CACHE.putIfAbsent(key,
+                new IntegerRange<T>(firstpoint, secondpoint));
+    }
+    
+    /**
+     * Returns the range described by a string in mathematical notation, as
+     * accepted by the IntegerRange(String) constructor, reusing a shared
+     * instance when the same string was parsed recently. A string that
+     * describes a range already made by of() yields that same instance.
+     * 
+     * @param range string with math notation example of integer range
+     * @return the range
+     * @throws Exception 
+     * @throws IllegalArgumentException 
+     */
+    public static <T extends Number & Comparable<T>> IntegerRange<T> parse( String range )
+            throws IllegalArgumentException, Exception {
+        IntegerRange<T> parsed = (IntegerRange<T>)CACHE.get(range);
+        if( parsed != null ) return parsed;
+        parsed = new IntegerRange<T>(range);
+        // share the instance with of() and with equivalent strings
+        parsed = (IntegerRange<T>)CACHE.putIfAbsent(RangeCache.endpointKey(
+                parsed.lowestValue, parsed.highestValue), parsed);
+        return (IntegerRange<T>)CACHE.putIfAbsent(range, parsed);
     }
     
     /**
      * Determines if the elements of the provided set are all within the bounds
-     * of the range.
+     * of the range. Sets kept in natural order, such as a TreeSet or the
+     * view from getAllPoints(), are answered from their first and last
+     * elements alone.
      * 
      * @param set a set of values to check, must be same type
      * @return returns true is set is fully contained in range
      */
     public boolean Contains( Set<T> set ) {
+        if( set instanceof SortedSet
+                && ((SortedSet<T>)set).comparator() == null ) {
+            if( set.isEmpty() ) return true;
+            SortedSet<T> sorted = (SortedSet<T>)set;
+            return lowestValue.compareTo(sorted.first()) <= 0
+                    && sorted.last().compareTo(highestValue) <= 0;
+        }
         for( T item: set ) {
             if( lowestValue.compareTo(item) > 0 ) return false;
             if( item.compareTo(highestValue) > 0 ) return false;
@@ -289,6 +360,60 @@ public class IntegerRange<T extends Number & Comparable<T>> {
         return true;
     }
     
+    /**
+     * Determines if all the values are within the bounds of the range. The
+     * check is a single min/max pass over the array.
+     * 
+     * @param values the values to check, of any size that fits the range type
+     * @return true if every value is in the range, or there are none
+     */
+    public boolean contains( int[] values ) {
+        if( !overlapsLongDomain() ) return values.length == 0;
+        return PointArrays.allWithin(values, lowBound(), highBound());
+    }
+    
+    /**
+     * Determines if all the values are within the bounds of the range. The
+     * check is a single min/max pass over the array.
+     * 
+     * @param values the values to check, of any size that fits the range type
+     * @return true if every value is in the range, or there are none
+     */
+    public boolean contains( long[] values ) {
+        if( !overlapsLongDomain() ) return values.length == 0;
+        return PointArrays.allWithin(values, lowBound(), highBound());
+    }
+    
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    
+    /**
+     * @return false for BIGINT ranges that no long value can fall in
+     */
+    private boolean overlapsLongDomain() {
+        if( rangeType != RangeType.BIGINT ) return true;
+        return ((BigInteger)lowestValue).compareTo(LONG_MAX) <= 0
+                && ((BigInteger)highestValue).compareTo(LONG_MIN) >= 0;
+    }
+    
+    /**
+     * @return the lowest value, clamped to Long.MIN_VALUE if below it
+     */
+    private long lowBound() {
+        if( rangeType != RangeType.BIGINT ) return lowestValue.longValue();
+        BigInteger low = (BigInteger)lowestValue;
+        return low.compareTo(LONG_MIN) < 0 ? Long.MIN_VALUE : low.longValue();
+    }
+    
+    /**
+     * @return the highest value, clamped to Long.MAX_VALUE if above it
+     */
+    private long highBound() {
+        if( rangeType != RangeType.BIGINT ) return highestValue.longValue();
+        BigInteger high = (BigInteger)highestValue;
+        return high.compareTo(LONG_MAX) > 0 ? Long.MAX_VALUE : high.longValue();
+    }
+    
     /**
      * Determines if the the provided range is completely within the bounds of
      * this range.
@@ -306,32 +431,23 @@ public class IntegerRange<T extends Number & Comparable<T>> {
     }
     
     /**
-     * Returns a list of all the points contained in the range. Not recommended
-     * for use with BigIntegers.
+     * Returns a sorted set of all the points contained in the range. For the
+     * SHORT, INTEGER and LONG types this is a lazy read-only view, so it costs
+     * nothing to create however many points it holds. BIGINT ranges are still
+     * materialized into a TreeSet, so this is not recommended for them.
      * 
      * @return a set of all contained points
      */
-    public Set getAllPoints() throws Exception {
-        TreeSet points = new TreeSet();
-        T countIndex = lowestValue;
-        while( countIndex.compareTo(highestValue) <= 0 ) {
-            points.add(countIndex);
-            switch(rangeType) {
-                case SHORT:
-                    countIndex = (T)Short.valueOf((short)(countIndex.shortValue() + (short)1));
-                    break;
-                case INTEGER:
-                    countIndex = (T)Integer.valueOf(countIndex.intValue() + 1);
-                    break;
-                case LONG:
-                    countIndex = (T)Long.valueOf(countIndex.longValue() + 1);
-                    break;
-                case BIGINT:
-                    countIndex = (T)((BigInteger)countIndex).add(BigInteger.ONE);
-                    break;
-                default:
-                    throw new Exception(PROVIDED_TYPE_NOT_OF_KNOWN_INTERGER_TYPE);
-            }
+    public SortedSet<T> getAllPoints() throws Exception {
+        if( rangeType != RangeType.BIGINT ) {
+            return new RangePointSet<T>(rangeType,
+                    lowestValue.longValue(), highestValue.longValue());
+        }
+        TreeSet<T> points = new TreeSet<>();
+        BigInteger countIndex = (BigInteger)lowestValue;
+        while( countIndex.compareTo((BigInteger)highestValue) <= 0 ) {
+            points.add((T)countIndex);
+            countIndex = countIndex.add(BigInteger.ONE);
         }
         return points;
     }
@@ -376,4 +492,93 @@ public class IntegerRange<T extends Number & Comparable<T>> {
             return true;
         else return false;
     }
+    
+    /**
+     * Converts the range to its primitive form.
+     * 
+     * @return a LongRange with the same endpoints
+     * @throws UnsupportedOperationException for BIGINT ranges
+     */
+    public LongRange toLongRange() throws UnsupportedOperationException {
+        if( rangeType == RangeType.BIGINT )
+            throw new UnsupportedOperationException(BIGINT_NOT_SUPPORTED);
+        return new LongRange(lowestValue.longValue(), highestValue.longValue());
+    }
+    
+    /**
+     * @return the number of points in the range, which for a full LONG or any
+     *         BIGINT range may not fit in a long
+     */
+    public BigInteger pointCount() {
+        return toBigInteger(highestValue).subtract(toBigInteger(lowestValue))
+                .add(BigInteger.ONE);
+    }
+    
+    /**
+     * Divides the range into consecutive, non-overlapping sub-ranges whose
+     * sizes differ by at most one, lowest first. A range with fewer points than
+     * parts is split into single points.
+     * 
+     * @param parts the number of sub-ranges wanted
+     * @return between 1 and parts sub-ranges that together cover this range
+     * @throws IllegalArgumentException if parts is not positive
+     */
+    public List<IntegerRange<T>> split( int parts ) throws IllegalArgumentException {
+        if( parts < 1 )
+            throw new IllegalArgumentException(PARTS_MUST_BE_POSITIVE);
+        BigInteger count = pointCount();
+        BigInteger divisor = BigInteger.valueOf(parts);
+        if( count.compareTo(divisor) < 0 ) divisor = count;
+        BigInteger[] division = count.divideAndRemainder(divisor);
+        BigInteger base = division[0];
+        int larger = division[1].intValue();
+        int pieces = divisor.intValue();
+        
+        ArrayList<IntegerRange<T>> ranges = new ArrayList<>(pieces);
+        BigInteger low = toBigInteger(lowestValue);
+        for( int i = 0; i < pieces; i++ ) {
+            // the first parts take the remainder, one point each
+            BigInteger size = i < larger ? base.add(BigInteger.ONE) : base;
+            BigInteger high = low.add(size).subtract(BigInteger.ONE);
+            ranges.add(new IntegerRange<T>(rangeType,
+                    fromBigInteger(low), fromBigInteger(high)));
+            low = high.add(BigInteger.ONE);
+        }
+        return ranges;
+    }
+    
+    /**
+     * Divides the range into two halves, in the manner of
+     * Spliterator.trySplit(). Ranges are immutable, so rather than shrinking
+     * this range both halves are returned, the lower one first; when the sizes
+     * differ the lower half is the larger.
+     * 
+     * @return the two halves, or null if the range is a single point
+     */
+    public List<IntegerRange<T>> trySplit() {
+        if( lowestValue.equals(highestValue) ) return null;
+        return split(2);
+    }
+    
+    private static BigInteger toBigInteger( Number value ) {
+        if( value instanceof BigInteger ) return (BigInteger)value;
+        return BigInteger.valueOf(value.longValue());
+    }
+    
+    /**
+     * @param value a value known to fit the range type
+     * @return the value boxed as the range type
+     */
+    private T fromBigInteger( BigInteger value ) {
+        switch(rangeType) {
+            case SHORT:
+                return (T)Short.valueOf(value.shortValue());
+            case INTEGER:
+                return (T)Integer.valueOf(value.intValue());
+            case LONG:
+                return (T)Long.valueOf(value.longValue());
+            default:
+                return (T)value;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable index over possibly overlapping inclusive ranges that answers
+ * which ranges contain a point, or overlap another range, in O(log n + k).
+ *
+ * The ranges are sorted by their lowest value into flat arrays, and those
+ * arrays double as an implicit augmented binary tree: the node at index i sits
+ * at level k when the lowest k bits of i are all ones, and a third array holds
+ * the highest value found anywhere under each node. No node objects exist, so
+ * a query walks three cache-friendly arrays. Sorting, which dominates the
+ * build, is split across the common fork-join pool for large inputs.
+ *
+ * Ranges are reported by their position in the input, so callers can map the
+ * results back onto their own lists.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class IntervalIndex {
+    /**
+     * Subtrees at or below this level are scanned linearly.
+     */
+    private static final int SCAN_LEVEL = 3;
+
+    private final long[] lows;
+    private final long[] highs;
+    private final long[] maxHighs;
+    private final int[] ids;
+    private final int size;
+    private final int rootLevel;
+
+    /**
+     * Builds an index over the ranges [lows[i], highs[i]]. The arrays are
+     * copied, and each pair may be given in either order.
+     *
+     * @param lows one endpoint of each range
+     * @param highs the other endpoint of each range
+     */
+    public IntervalIndex( long[] lows, long[] highs ) {
+        if( lows.length != highs.length )
+            throw new IllegalArgumentException("endpoint arrays differ in length");
+        size = lows.length;
+        this.lows = new long[size];
+        this.highs = new long[size];
+        ids = new int[size];
+        for( int i = 0; i < size; i++ ) {
+            this.lows[i] = Math.min(lows[i], highs[i]);
+            this.highs[i] = Math.max(lows[i], highs[i]);
+            ids[i] = i;
+        }
+        RangeSort.sort(this.lows, this.highs, ids, ForkJoinPool.commonPool());
+        maxHighs = new long[size];
+        rootLevel = augment();
+    }
+
+    /**
+     * @param ranges the ranges to index
+     */
+    public IntervalIndex( List<LongRange> ranges ) {
+        this(lowsOf(ranges), highsOf(ranges));
+    }
+
+    /**
+     * @param ranges SHORT, INTEGER or LONG ranges to index
+     * @return a new index over the ranges
+     * @throws UnsupportedOperationException if any range is BIGINT
+     */
+    public static IntervalIndex fromRanges( List<? extends IntegerRange<?>> ranges )
+            throws UnsupportedOperationException {
+        long[] lows = new long[ranges.size()];
+        long[] highs = new long[ranges.size()];
+        int i = 0;
+        for( IntegerRange<?> range : ranges ) {
+            LongRange longRange = range.toLongRange();
+            lows[i] = longRange.getLowestValue();
+            highs[i++] = longRange.getHighestValue();
+        }
+        return new IntervalIndex(lows, highs);
+    }
+
+    private static long[] lowsOf( List<LongRange> ranges ) {
+        long[] lows = new long[ranges.size()];
+        int i = 0;
+        for( LongRange range : ranges ) lows[i++] = range.getLowestValue();
+        return lows;
+    }
+
+    private static long[] highsOf( List<LongRange> ranges ) {
+        long[] highs = new long[ranges.size()];
+        int i = 0;
+        for( LongRange range : ranges ) highs[i++] = range.getHighestValue();
+        return highs;
+    }
+
+    /**
+     * @return the number of ranges in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reports the input position of every range containing the point.
+     *
+     * @param point the point to look up
+     * @param visitor receives the position of each matching range
+     */
+    public void stab( long point, IntConsumer visitor ) {
+        overlapping(point, point, visitor);
+    }
+
+    /**
+     * Reports the input position of every range sharing a point with [a, b].
+     *
+     * @param firstpoint an endpoint of the query range
+     * @param secondpoint an endpoint of the query range
+     * @param visitor receives the position of each matching range
+     */
+    public void overlapping( long firstpoint, long secondpoint,
+            IntConsumer visitor ) {
+        if( size == 0 ) return;
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+        query((1 << rootLevel) - 1, rootLevel, low, high, visitor);
+    }
+
+    /**
+     * @param firstpoint an endpoint of the query range
+     * @param secondpoint an endpoint of the query range
+     * @return the number of ranges sharing a point with the query range
+     */
+    public int countOverlapping( long firstpoint, long secondpoint ) {
+        final int[] count = new int[1];
+        overlapping(firstpoint, secondpoint, new IntConsumer() {
+            @Override
+            public void accept( int id ) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Visits the subtree rooted at node x on the given level. The recursion
+     * is at most one call per level deep, so queries allocate nothing.
+     */
+    private void query( int x, int level, long low, long high,
+            IntConsumer visitor ) {
+        if( level <= SCAN_LEVEL ) {
+            int first = x >> level << level;
+            int end = (int)Math.min((long)first + (1L << (level + 1)) - 1, size);
+            for( int i = first; i < end && lows[i] <= high; i++ ) {
+                if( highs[i] >= low ) visitor.accept(ids[i]);
+            }
+            return;
+        }
+        int half = 1 << (level - 1);
+        int left = x - half;
+        // nodes past the end have no stored maximum but may have children
+        if( left >= size || maxHighs[left] >= low ) {
+            query(left, level - 1, low, high, visitor);
+        }
+        if( x < size && lows[x] <= high ) {
+            if( highs[x] >= low ) visitor.accept(ids[x]);
+            query(x + half, level - 1, low, high, visitor);
+        }
+    }
+
+    /**
+     * Fills in the highest value under each node, bottom up.
+     *
+     * @return the level of the root
+     */
+    private int augment() {
+        if( size == 0 ) return 0;
+        int lastIndex = 0;
+        long last = 0;
+        for( int i = 0; i < size; i += 2 ) {
+            lastIndex = i;
+            maxHighs[i] = last = highs[i];
+        }
+        int level;
+        for( level = 1; 1L << level <= size; level++ ) {
+            int half = 1 << (level - 1);
+            int step = half << 2;
+            for( int i = (half << 1) - 1; i < size; i += step ) {
+                long leftMax = maxHighs[i - half];
+                long rightMax = i + half < size ? maxHighs[i + half] : last;
+                long max = highs[i];
+                if( leftMax > max ) max = leftMax;
+                if( rightMax > max ) max = rightMax;
+                maxHighs[i] = max;
+            }
+            // track the last node on this level, whose right side is cut off
+            lastIndex = (lastIndex >> level & 1) != 0
+                    ? lastIndex - half : lastIndex + half;
+            if( lastIndex < size && maxHighs[lastIndex] > last ) {
+                last = maxHighs[lastIndex];
+            }
+        }
+        return level - 1;
+    }
+}
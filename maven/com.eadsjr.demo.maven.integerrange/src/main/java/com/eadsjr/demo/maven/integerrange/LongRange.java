@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.PrimitiveIterator;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An inclusive range of long values stored as two primitives. It answers the
+ * same questions as IntegerRange for the SHORT, INTEGER and LONG types without
+ * boxing or type dispatch, so the checks are small enough to be inlined.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class LongRange {
+    /**
+     * Represents the lowest value included in the range
+     */
+    private final long lowestValue;
+
+    /**
+     * Represents the highest value included in the range
+     */
+    private final long highestValue;
+
+    public long getLowestValue() { return lowestValue; }
+    public long getHighestValue() { return highestValue; }
+
+    /**
+     * Creates a range from zero to given value.
+     *
+     * @param range endpoint of the range
+     */
+    public LongRange( long range ) {
+        this(0, range);
+    }
+
+    /**
+     * Creates a range with the given endpoints, inclusive. The endpoints may
+     * be given in either order.
+     *
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     */
+    public LongRange( long firstpoint, long secondpoint ) {
+        if( firstpoint > secondpoint ) {
+            lowestValue = secondpoint;
+            highestValue = firstpoint;
+        }
+        else {
+            lowestValue = firstpoint;
+            highestValue = secondpoint;
+        }
+    }
+
+    /**
+     * @param value a point to check
+     * @return true if the point is within the range
+     */
+    public boolean contains( long value ) {
+        return lowestValue <= value && value <= highestValue;
+    }
+
+    /**
+     * Determines if all the values are within the bounds of the range, with a
+     * single min/max pass over the array.
+     *
+     * @param values the values to check
+     * @return true if every value is in the range, or there are none
+     */
+    public boolean contains( long[] values ) {
+        return PointArrays.allWithin(values, lowestValue, highestValue);
+    }
+
+    /**
+     * Determines if the provided range is completely within the bounds of
+     * this range.
+     *
+     * @param range another range
+     * @return true if range is fully contained
+     */
+    public boolean containsRange( LongRange range ) {
+        return lowestValue <= range.lowestValue
+                && range.highestValue <= highestValue;
+    }
+
+    /**
+     * Determines whether the ranges overlap at any point.
+     *
+     * @param range another range
+     * @return true if any point is shared between the ranges
+     */
+    public boolean overlaps( LongRange range ) {
+        return lowestValue <= range.highestValue
+                && range.lowestValue <= highestValue;
+    }
+
+    /**
+     * Returns the number of points in the range. A range covering more than
+     * Long.MAX_VALUE points reports Long.MAX_VALUE.
+     *
+     * @return the number of points in the range
+     */
+    public long size() {
+        long size = highestValue - lowestValue + 1;
+        return size > 0 ? size : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the points of the range in ascending order, produced on demand
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * @return a spliterator over the points that splits into even halves
+     */
+    public Spliterator.OfLong spliterator() {
+        return new LongRangeSpliterator(lowestValue, highestValue);
+    }
+
+    /**
+     * @return a sequential stream of the points; call parallel() to split it
+     */
+    public LongStream stream() {
+        return StreamSupport.longStream(spliterator(), false);
+    }
+
+    /**
+     * @return a lazy read-only sorted set view of the points
+     */
+    public SortedSet<Long> points() {
+        return new RangePointSet<Long>(IntegerRange.RangeType.LONG,
+                lowestValue, highestValue);
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        if( !(other instanceof LongRange) ) return false;
+        LongRange range = (LongRange)other;
+        return lowestValue == range.lowestValue
+                && highestValue == range.highestValue;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = lowestValue * 31 + highestValue;
+        return (int)(hash ^ (hash >>> 32));
+    }
+
+    /**
+     * @return the range in inclusive mathematical notation, e.g. "[2,5]"
+     */
+    @Override
+    public String toString() {
+        return "[" + lowestValue + "," + highestValue + "]";
+    }
+}
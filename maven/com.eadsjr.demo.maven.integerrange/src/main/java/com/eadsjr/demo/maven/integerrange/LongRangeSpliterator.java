@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Walks the points of an inclusive long range in ascending order without
+ * storing them. Splitting always halves the remaining points, so parallel
+ * streams over a range get evenly sized pieces.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+final class LongRangeSpliterator implements Spliterator.OfLong {
+    private long next;
+    private final long last;
+    private boolean exhausted;
+
+    /**
+     * @param first the first point to visit
+     * @param last the last point to visit, inclusive
+     */
+    LongRangeSpliterator( long first, long last ) {
+        this.next = first;
+        this.last = last;
+        this.exhausted = first > last;
+    }
+
+    @Override
+    public boolean tryAdvance( LongConsumer action ) {
+        if( exhausted ) return false;
+        long value = next;
+        // stepping past Long.MAX_VALUE would wrap, so finish explicitly
+        if( value == last ) exhausted = true;
+        else next = value + 1;
+        action.accept(value);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining( LongConsumer action ) {
+        if( exhausted ) return;
+        exhausted = true;
+        long end = last;
+        for( long value = next; ; value++ ) {
+            action.accept(value);
+            if( value == end ) break;
+        }
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+        if( exhausted || next == last ) return null;
+        // unsigned halving, the distance may not fit in a signed long
+        long middle = next + ((last - next) >>> 1);
+        LongRangeSpliterator prefix = new LongRangeSpliterator(next, middle);
+        next = middle + 1;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        if( exhausted ) return 0;
+        long size = last - next + 1;
+        return size > 0 ? size : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        int characteristics = ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+        if( exhausted || last - next + 1 > 0 ) {
+            characteristics |= SIZED | SUBSIZED;
+        }
+        return characteristics;
+    }
+
+    @Override
+    public Comparator<? super Long> getComparator() {
+        return null;
+    }
+}
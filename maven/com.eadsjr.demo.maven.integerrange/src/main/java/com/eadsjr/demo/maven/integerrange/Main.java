@@ -16,10 +16,25 @@
 
 package com.eadsjr.demo.maven.integerrange;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
 /**
  * This executes functional tests of the IntegerRange class.
@@ -110,8 +125,29 @@ public class Main {
         Set returnSet = IRminus3to5.getAllPoints();
         
         assert( set.containsAll(returnSet) );
-        returnSet.removeAll(set);
-        assert( returnSet.isEmpty() );
+        assert( returnSet.containsAll(set) );
+        assert( returnSet.equals(set) && set.equals(returnSet) );
+        assert( returnSet.size() == 9 );
+        assert( !returnSet.contains(Integer.valueOf(0)) );
+        
+        // a lazy view: millions of points cost nothing until visited
+        IntegerRange bigLongRange = new IntegerRange(0L, 4999999999L);
+        SortedSet<Long> bigPoints = bigLongRange.getAllPoints();
+        assert( bigPoints.size() == Integer.MAX_VALUE );
+        assert( bigPoints.first() == 0L && bigPoints.last() == 4999999999L );
+        assert( bigPoints.contains(4999999999L) && !bigPoints.contains(-1L) );
+        assert( bigPoints.headSet(3L).size() == 3 );
+        assert( bigPoints.subSet(10L, 20L).first() == 10L );
+        assert( bigPoints.tailSet(4999999998L).size() == 2 );
+        assert( new LongRange(1, 3000000).stream().parallel().sum()
+                == 3000000L * 3000001L / 2 );
+        assert( new LongRange(Long.MAX_VALUE - 2, Long.MAX_VALUE).stream().count() == 3 );
+        assert( new LongRange(Long.MIN_VALUE, Long.MAX_VALUE).spliterator()
+                .trySplit().trySplit().estimateSize() == 1L << 62 );
+        
+        Set bigIntPoints = new IntegerRange(
+                BigInteger.ONE, BigInteger.valueOf(3)).getAllPoints();
+        assert( bigIntPoints.size() == 3 );
         
         /**
          * Test ContainsRange
@@ -169,6 +205,737 @@ public class Main {
          */
         assert(IRminus3to5.Equals(new IntegerRange((short)-3,(short)5)));
         
+        /**
+         * Test IntRange and LongRange
+         */
+        IntRange intRange = new IntRange(5, -3);
+        assert(intRange.getLowestValue() == -3);
+        assert(intRange.getHighestValue() == 5);
+        assert(intRange.contains(-3) && intRange.contains(5));
+        assert(!intRange.contains(-4) && !intRange.contains(6));
+        assert(intRange.containsRange(new IntRange(2, 5)));
+        assert(!intRange.containsRange(new IntRange(2, 6)));
+        assert(intRange.overlaps(new IntRange(-7, -3)));
+        assert(!intRange.overlaps(new IntRange(-7, -4)));
+        assert(intRange.size() == 9);
+        assert(new IntRange(Integer.MIN_VALUE, Integer.MAX_VALUE).size() == 1L << 32);
+        
+        LongRange longRange = IRminus3to5.toLongRange();
+        assert(longRange.equals(intRange.toLongRange()));
+        assert(longRange.toString().equals("[-3,5]"));
+        assert(r6.toLongRange().equals(new LongRange(2, 55555666666L)));
+        assert(new LongRange(Long.MIN_VALUE, Long.MAX_VALUE).size() == Long.MAX_VALUE);
+        assert(new LongRange(Long.MAX_VALUE).contains(Long.MAX_VALUE));
+        
+        /**
+         * Test RangeSet
+         */
+        RangeSet rangeSet = new RangeSet(1);
+        rangeSet.add(10, 20);
+        rangeSet.add(30, 40);
+        rangeSet.add(IRminus3to5);
+        rangeSet.add(21, 25); // touches [10,20], merges
+        assert(rangeSet.toString().equals("{[-3,5],[10,25],[30,40]}"));
+        assert(rangeSet.contains(-3) && rangeSet.contains(25) && rangeSet.contains(35));
+        assert(!rangeSet.contains(-4) && !rangeSet.contains(6) && !rangeSet.contains(41));
+        assert(rangeSet.containsRange(12, 22) && !rangeSet.containsRange(20, 30));
+        assert(rangeSet.overlapsRange(26, 30) && !rangeSet.overlapsRange(26, 29));
+        rangeSet.add(0, 35);
+        assert(rangeSet.toString().equals("{[-3,40]}"));
+        rangeSet.remove(10, 20);
+        assert(rangeSet.toString().equals("{[-3,9],[21,40]}"));
+        rangeSet.remove(-10, -3);
+        rangeSet.remove(40, 50);
+        assert(rangeSet.toString().equals("{[-2,9],[21,39]}"));
+        
+        RangeSet complement = rangeSet.complement();
+        assert(complement.rangeCount() == 3);
+        assert(complement.getLowestValue(0) == Long.MIN_VALUE);
+        assert(complement.getHighestValue(2) == Long.MAX_VALUE);
+        assert(complement.complement().equals(rangeSet));
+        assert(complement.intersection(rangeSet).isEmpty());
+        assert(complement.union(rangeSet).equals(new RangeSet().complement()));
+        
+        RangeSet otherSet = new RangeSet();
+        otherSet.add(5, 25);
+        otherSet.add(39, 100);
+        assert(rangeSet.intersection(otherSet).toString().equals("{[5,9],[21,25],[39,39]}"));
+        assert(rangeSet.union(otherSet).toString().equals("{[-2,100]}"));
+        
+        /**
+         * Test IntervalIndex against a brute force scan
+         */
+        Random random = new Random(1);
+        int indexSize = 50000;
+        long[] indexLows = new long[indexSize];
+        long[] indexHighs = new long[indexSize];
+        for( int i = 0; i < indexSize; i++ ) {
+            indexLows[i] = random.nextInt(1000000);
+            indexHighs[i] = indexLows[i] + random.nextInt(i % 100 == 0 ? 100000 : 50);
+        }
+        IntervalIndex index = new IntervalIndex(indexLows, indexHighs);
+        assert(index.size() == indexSize);
+        for( int q = 0; q < 200; q++ ) {
+            long a = random.nextInt(1100000) - 50000;
+            long b = a + (q % 2 == 0 ? 0 : random.nextInt(1000));
+            final BitSet found = new BitSet();
+            index.overlapping(a, b, new IntConsumer() {
+                @Override
+                public void accept( int id ) {
+                    assert(!found.get(id)); // reported once
+                    found.set(id);
+                }
+            });
+            int expected = 0;
+            for( int i = 0; i < indexSize; i++ ) {
+                boolean overlaps = indexLows[i] <= b && a <= indexHighs[i];
+                assert(overlaps == found.get(i));
+                if( overlaps ) expected++;
+            }
+            assert(index.countOverlapping(a, b) == expected);
+        }
+        List<IntegerRange<Short>> someRanges = new ArrayList<>();
+        someRanges.add(IRminus3to5);
+        someRanges.add(IR7to9);
+        someRanges.add(IR2to6);
+        IntervalIndex smallIndex = IntervalIndex.fromRanges(someRanges);
+        assert(smallIndex.countOverlapping(6, 6) == 1);
+        assert(smallIndex.countOverlapping(5, 7) == 3);
+        assert(new IntervalIndex(new long[0], new long[0]).countOverlapping(0, 1) == 0);
+        
+        /**
+         * Test RangeMap, plain and Eytzinger ordered, against a RangeSet
+         */
+        for( boolean eytzinger : new boolean[] { false, true } ) {
+            RangeMap<String> shards = new RangeMap<>(eytzinger);
+            shards.put(IRminus3to5, "a");
+            shards.put(new LongRange(100, 200), "c");
+            shards.put(10, 20, "b");
+            assert(shards.size() == 3);
+            assert(shards.get(-3).equals("a") && shards.get(5).equals("a"));
+            assert(shards.get(15).equals("b") && shards.get(200).equals("c"));
+            assert(shards.get(6) == null && shards.get(Long.MIN_VALUE) == null);
+            assert(shards.getOrDefault(50, "none").equals("none"));
+            assert(shards.getRange(150).equals(new LongRange(100, 200)));
+            boolean isHandled = false;
+            try {
+                shards.put(20, 30, "x");
+            }
+            catch( IllegalArgumentException e ) {
+                isHandled = true;
+            }
+            assert(isHandled);
+            assert(shards.remove(12).equals("b"));
+            assert(shards.get(15) == null && shards.size() == 2);
+            
+            RangeMap<Integer> numbered = new RangeMap<>(eytzinger);
+            RangeSet covered = new RangeSet();
+            for( int i = 0; i < 1000; i++ ) {
+                long low = random.nextInt(100000);
+                long high = low + random.nextInt(20);
+                if( covered.overlapsRange(low, high) ) continue;
+                covered.add(low, high);
+                numbered.put(low, high, i);
+            }
+            for( int i = 0; i < 20000; i++ ) {
+                long point = random.nextInt(100010) - 5;
+                Integer value = numbered.get(point);
+                assert((value != null) == covered.contains(point));
+                assert(value == null || numbered.getRange(point).contains(point));
+            }
+        }
+        rangeMapChangeTests(random);
+        
+        /**
+         * Test the Contains fast paths and bulk contains
+         */
+        TreeSet<Short> sortedShorts = new TreeSet<>();
+        sortedShorts.add((short)-3);
+        sortedShorts.add((short)5);
+        assert(IRminus3to5.Contains(sortedShorts));
+        sortedShorts.add((short)6);
+        assert(!IRminus3to5.Contains(sortedShorts));
+        TreeSet<Short> reversedShorts = new TreeSet<>(Collections.reverseOrder());
+        reversedShorts.add((short)-3);
+        reversedShorts.add((short)5);
+        assert(IRminus3to5.Contains(reversedShorts));
+        assert(IRminus3to5.Contains(new TreeSet<Short>()));
+        assert(bigLongRange.Contains(bigPoints));
+        assert(!bigLongRange.Contains(new LongRange(-1, 5).points()));
+        
+        int[] ints = new int[1001];
+        long[] longs = new long[1001];
+        for( int i = 0; i < ints.length; i++ ) {
+            ints[i] = random.nextInt(9) - 3;
+            longs[i] = ints[i];
+        }
+        assert(IRminus3to5.contains(ints) && IRminus3to5.contains(longs));
+        assert(intRange.contains(ints) && longRange.contains(longs));
+        assert(IRminus3to5.contains(new int[0]));
+        for( int at : new int[] { 0, 500, 999, 1000 } ) {
+            ints[at] = 6;
+            longs[at] = -4;
+            assert(!IRminus3to5.contains(ints) && !IRminus3to5.contains(longs));
+            assert(!intRange.contains(ints) && !longRange.contains(longs));
+            ints[at] = 0;
+            longs[at] = 0;
+        }
+        IntegerRange hugeRange = new IntegerRange(
+                BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE),
+                BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE));
+        assert(hugeRange.contains(new long[] { Long.MIN_VALUE, Long.MAX_VALUE }));
+        IntegerRange beyondLongs = new IntegerRange(
+                BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE),
+                BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.TEN));
+        assert(!beyondLongs.contains(new long[] { Long.MAX_VALUE }));
+        assert(beyondLongs.contains(new long[0]));
+        
+        /**
+         * Test RangeParser
+         */
+        String rangeLines = "[12,19)\n"
+                + "(-4, -1)\r\n"
+                + "\n"
+                + "[5,3]\n"                                   // inverted
+                + "[1,1)\n"                                   // empty
+                + "[1;2]\n"                                   // malformed
+                + "[0,99999999999999999999]\n"                // too large
+                + "[-9223372036854775808,9223372036854775807]";
+        RangeParser parser = new RangeParser();
+        final List<Long> errorPositions = new ArrayList<>();
+        parser.setErrorListener(new RangeParser.ErrorListener() {
+            @Override
+            public void error( long position, int errorCode ) {
+                errorPositions.add(position);
+            }
+        });
+        final List<LongRange> parsed = new ArrayList<>();
+        RangeConsumer collector = new RangeConsumer() {
+            @Override
+            public void accept( long lowestValue, long highestValue ) {
+                parsed.add(new LongRange(lowestValue, highestValue));
+            }
+        };
+        assert(parser.parse(rangeLines, collector) == 3);
+        assert(parsed.get(0).equals(new LongRange(12, 18)));
+        assert(parsed.get(1).equals(new LongRange(-3, -2)));
+        assert(parsed.get(2).equals(new LongRange(Long.MIN_VALUE, Long.MAX_VALUE)));
+        assert(parser.getErrorCount() == 4);
+        assert(parser.getFirstErrorCode() == RangeParser.RANGE_STRING_NUMBERS_INVERTED);
+        assert(parser.getFirstErrorPosition() == rangeLines.indexOf("[5,3]"));
+        assert(errorPositions.get(2) == rangeLines.indexOf(";"));
+        assert(errorPositions.get(3) == rangeLines.indexOf("99999999999999999999") + 18);
+        
+        RangeSet parsedSet = new RangeSet();
+        byte[] rangeBytes = "[1,3]\n[4,6)\n(10,20]\n".getBytes(StandardCharsets.US_ASCII);
+        assert(new RangeParser().parse(ByteBuffer.wrap(rangeBytes), parsedSet) == 3);
+        assert(parsedSet.toString().equals("{[1,5],[11,20]}"));
+        
+        Path rangeFile = Files.createTempFile("ranges", ".txt");
+        try {
+            Files.write(rangeFile, rangeBytes);
+            RangeSet fileSet = new RangeSet();
+            assert(new RangeParser().parse(rangeFile, fileSet) == 3);
+            assert(fileSet.equals(parsedSet));
+        }
+        finally {
+            Files.delete(rangeFile);
+        }
+        
+        /**
+         * Test RangeJoin, sequential and parallel, against nested loops
+         */
+        int joinSize = 5000;
+        long[] joinLows = new long[joinSize];
+        long[] joinHighs = new long[joinSize];
+        for( int i = 0; i < joinSize; i++ ) {
+            joinLows[i] = random.nextInt(2000000) - 1000000;
+            joinHighs[i] = joinLows[i] + random.nextInt(i % 500 == 0 ? 500000 : 200);
+        }
+        long expectedPairs = 0;
+        long expectedChecksum = 0;
+        for( int i = 0; i < joinSize; i++ ) {
+            for( int j = 0; j < indexSize; j++ ) {
+                if( joinLows[i] <= indexHighs[j] && indexLows[j] <= joinHighs[i] ) {
+                    expectedPairs++;
+                    expectedChecksum += (long)i * 31 + j;
+                }
+            }
+        }
+        for( ForkJoinPool pool : new ForkJoinPool[] { null, new ForkJoinPool(4) } ) {
+            final AtomicLong pairs = new AtomicLong();
+            final AtomicLong checksum = new AtomicLong();
+            RangeJoin.join(joinLows, joinHighs, indexLows, indexHighs,
+                    new RangeJoin.PairConsumer() {
+                @Override
+                public void accept( int leftIndex, int rightIndex ) {
+                    pairs.incrementAndGet();
+                    checksum.addAndGet((long)leftIndex * 31 + rightIndex);
+                }
+            }, pool);
+            assert(pairs.get() == expectedPairs);
+            assert(checksum.get() == expectedChecksum);
+            if( pool != null ) pool.shutdown();
+        }
+        final List<String> joined = new ArrayList<>();
+        RangeJoin.join(someRanges, someRanges, new RangeJoin.PairConsumer() {
+            @Override
+            public void accept( int leftIndex, int rightIndex ) {
+                joined.add(leftIndex + "-" + rightIndex);
+            }
+        });
+        Collections.sort(joined);
+        assert(joined.toString().equals("[0-0, 0-2, 1-1, 2-0, 2-2]"));
+        
+        /**
+         * The remaining tests live in their own methods, which keeps main()
+         * small enough for the JIT to compile the loops above.
+         */
+        pointSetHashTests(random);
+        splitTests();
+        rangeFileTests(random);
+        allocatorTests();
+        cacheTests();
+        compressedSetTests(random);
+        
         System.out.println("IntegerRangeTestComplete");
     }
+    
+    /**
+     * The lazy point view hashes like a TreeSet of the same points, without
+     * visiting them.
+     */
+    private static void pointSetHashTests( Random random ) throws Exception {
+        long[] lows = { -3, 0, 4294967290L, -4294967300L, Long.MIN_VALUE,
+                Long.MAX_VALUE - 40, -20, (1L << 40) - 7 };
+        for( long low : lows ) {
+            for( int length = 0; length < 40; length += 1 + random.nextInt(5) ) {
+                long high = low + length;
+                if( high < low ) continue;
+                SortedSet<Long> points = new IntegerRange<Long>(low, high).getAllPoints();
+                assert( points.hashCode() == new TreeSet<Long>(points).hashCode() );
+            }
+        }
+        for( int i = 0; i < 200; i++ ) {
+            int low = random.nextInt(), high = low + random.nextInt(50);
+            if( high < low ) continue;
+            SortedSet<Integer> points = new IntegerRange<Integer>(low, high).getAllPoints();
+            assert( points.hashCode() == new TreeSet<Integer>(points).hashCode() );
+        }
+        SortedSet<Short> shorts = new IntegerRange<Short>("[-300,200]").getAllPoints();
+        assert( shorts.hashCode() == new TreeSet<Short>(shorts).hashCode() );
+
+        // a range spanning blocks of 2^32 matches the sum taken block by block
+        // with the one full block between summing to 2^31
+        long low = 4294967290L, high = 2 * 4294967296L + 5;
+        int expected = 1 << 31;
+        for( long v = low; v < 4294967296L; v++ ) expected += Long.valueOf(v).hashCode();
+        for( long v = 2 * 4294967296L; v <= high; v++ ) expected += Long.valueOf(v).hashCode();
+        assert( new IntegerRange<Long>(low, high).getAllPoints().hashCode() == expected );
+
+        // and the whole of long is answered at once
+        new IntegerRange<Long>(Long.MIN_VALUE, Long.MAX_VALUE).getAllPoints().hashCode();
+    }
+
+    /**
+     * Splitting ranges, and processing them in a fork-join pool.
+     */
+    private static void splitTests() throws Exception {
+        List<IntegerRange<Short>> shortParts =
+                new IntegerRange<Short>("[0,9]").split(4);
+        assert(shortParts.size() == 4);
+        assert(shortParts.get(0).getLowestValue() == 0
+                && shortParts.get(0).getHighestValue() == 2);
+        assert(shortParts.get(2).getLowestValue() == 6
+                && shortParts.get(3).getHighestValue() == 9);
+        assert(new IntegerRange<Short>("[0,2]").split(8).size() == 3);
+        assert(new IntegerRange<Short>("[5,5]").trySplit() == null);
+        IntegerRange<Long> fullLong = new IntegerRange<Long>(Long.MIN_VALUE, Long.MAX_VALUE);
+        List<IntegerRange<Long>> longParts = fullLong.split(3);
+        assert(longParts.get(0).getLowestValue() == Long.MIN_VALUE);
+        assert(longParts.get(2).getHighestValue() == Long.MAX_VALUE);
+        BigInteger partTotal = BigInteger.ZERO;
+        for( int i = 0; i < longParts.size(); i++ ) {
+            partTotal = partTotal.add(longParts.get(i).pointCount());
+            if( i > 0 ) assert(longParts.get(i).getLowestValue()
+                    == longParts.get(i - 1).getHighestValue() + 1);
+        }
+        assert(partTotal.equals(fullLong.pointCount()));
+        IntegerRange<BigInteger> bigSplit = new IntegerRange<BigInteger>(
+                "[-100000000000000000000000,100000000000000000000000]");
+        List<IntegerRange<BigInteger>> bigHalves = bigSplit.trySplit();
+        assert(bigHalves.get(0).getHighestValue().equals(BigInteger.ZERO));
+        assert(bigHalves.get(1).getLowestValue().equals(BigInteger.ONE));
+        assert(bigHalves.get(0).pointCount().subtract(
+                bigHalves.get(1).pointCount()).equals(BigInteger.ONE));
+        
+        // Summing a range in parallel
+        RangeTask.Worker<Long, Long> summer = new RangeTask.Worker<Long, Long>() {
+            @Override
+            public Long process( IntegerRange<Long> range ) {
+                long sum = 0;
+                long high = range.getHighestValue();
+                for( long i = range.getLowestValue(); i <= high; i++ ) sum += i;
+                return sum;
+            }
+            
+            @Override
+            public Long combine( Long lower, Long higher ) {
+                return lower + higher;
+            }
+        };
+        long sumTo = 10000000L;
+        ForkJoinPool sumPool = new ForkJoinPool(4);
+        long parallelSum = sumPool.invoke(new RangeTask<Long, Long>(
+                new IntegerRange<Long>(1L, sumTo), 10000, summer));
+        sumPool.shutdown();
+        assert(parallelSum == sumTo * (sumTo + 1) / 2);
+        assert(new RangeTask<Long, Long>(new IntegerRange<Long>(-3L, 3L), 1,
+                summer).invoke() == 0L);
+    }
+    
+    /**
+     * Binary range files, queried in place.
+     */
+    private static void rangeFileTests( Random random ) throws Exception {
+        RangeSet stored = new RangeSet();
+        for( int i = 0; i < 5000; i++ ) {
+            long low = random.nextLong() >> (i % 3 == 0 ? 0 : 20);
+            stored.add(low, low + random.nextInt(1 << (i % 20)));
+        }
+        stored.add(Long.MIN_VALUE, Long.MIN_VALUE + 3);
+        stored.add(Long.MAX_VALUE - 3, Long.MAX_VALUE);
+        Path binaryFile = Files.createTempFile("ranges", ".bin");
+        try {
+            RangeFile.write(stored, IntegerRange.RangeType.LONG, binaryFile);
+            RangeFile mapped = RangeFile.open(binaryFile);
+            assert(mapped.getRangeType() == IntegerRange.RangeType.LONG);
+            assert(mapped.rangeCount() == stored.rangeCount());
+            assert(mapped.toRangeSet().equals(stored));
+            assert(Files.size(binaryFile) < stored.rangeCount() * 16L);
+            for( int i = 0; i < stored.rangeCount(); i++ ) {
+                long low = stored.getLowestValue(i);
+                long high = stored.getHighestValue(i);
+                assert(mapped.contains(low) && mapped.contains(high));
+                assert(mapped.containsRange(low, high));
+                assert(mapped.contains(low - 1) == stored.contains(low - 1));
+                assert(mapped.contains(high + 1) == stored.contains(high + 1));
+            }
+            for( int i = 0; i < 20000; i++ ) {
+                long a = random.nextLong() >> (i % 2 == 0 ? 0 : 20);
+                long b = a + random.nextInt(1 << 16);
+                assert(mapped.contains(a) == stored.contains(a));
+                assert(mapped.overlapsRange(a, b) == stored.overlapsRange(a, b));
+                assert(mapped.containsRange(a, b) == stored.containsRange(a, b));
+            }
+        }
+        finally {
+            Files.delete(binaryFile);
+        }
+        RangeSet smallStored = new RangeSet();
+        smallStored.add(-5, 5);
+        smallStored.add(100, 200);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        RangeFile.write(smallStored, IntegerRange.RangeType.SHORT, encoded);
+        RangeFile small = new RangeFile(ByteBuffer.wrap(encoded.toByteArray()));
+        assert(small.getRangeType() == IntegerRange.RangeType.SHORT);
+        assert(small.contains(-5) && small.contains(150) && !small.contains(6));
+        assert(!small.contains(-6) && !small.contains(201));
+        encoded.reset();
+        RangeFile.write(new RangeSet(), IntegerRange.RangeType.INTEGER, encoded);
+        RangeFile empty = new RangeFile(ByteBuffer.wrap(encoded.toByteArray()));
+        assert(empty.isEmpty() && !empty.contains(0));
+        try {
+            RangeFile.write(stored, IntegerRange.RangeType.SHORT, encoded);
+            assert(false);
+        }
+        catch( IllegalArgumentException e ) {
+            // expected, the ranges do not fit in a short
+        }
+        try {
+            new RangeFile(ByteBuffer.wrap("[1,2]\n".getBytes(StandardCharsets.US_ASCII)));
+            assert(false);
+        }
+        catch( IOException e ) {
+            // expected, text is not a range file
+        }
+    }
+    
+    /**
+     * The Eytzinger copy of a RangeMap follows changes made between lookups,
+     * and loading a large map in order stays linear.
+     */
+    private static void rangeMapChangeTests( Random random ) {
+        RangeMap<Integer> plainMap = new RangeMap<>();
+        RangeMap<Integer> eytzingerMap = new RangeMap<>(true);
+        for( int i = 0; i < 200000; i++ ) {
+            plainMap.put(i * 10L, i * 10L + 4, i);
+            eytzingerMap.put(i * 10L, i * 10L + 4, i);
+        }
+        for( int i = 0; i < 1500; i++ ) {
+            long point = random.nextInt(2000010);
+            if( i % 3 == 0 ) {
+                assert(Objects.equals(plainMap.remove(point), eytzingerMap.remove(point)));
+            }
+            else if( i % 3 == 1 && plainMap.get(point) == null
+                    && plainMap.get(point + 1) == null ) {
+                plainMap.put(point, point + 1, i);
+                eytzingerMap.put(point, point + 1, i);
+            }
+            assert(Objects.equals(plainMap.get(point), eytzingerMap.get(point)));
+            assert(Objects.equals(plainMap.get(point + 3), eytzingerMap.get(point + 3)));
+        }
+        assert(plainMap.size() == eytzingerMap.size());
+    }
+    
+    /**
+     * Allocating blocks of IDs from several threads.
+     */
+    private static void allocatorTests() throws Exception {
+        final IdBlockAllocator allocator = new IdBlockAllocator(
+                new IntegerRange<Integer>(1, 1000000), 4, 256);
+        assert(allocator.getStripeCount() == 4);
+        LongRange firstBlock = allocator.allocate(10);
+        assert(firstBlock.size() == 10);
+        LongRange bigBlock = allocator.allocate(5000);
+        assert(bigBlock.size() == 5000 && !bigBlock.overlaps(firstBlock));
+        assert(!allocator.freeRanges().overlapsRange(
+                bigBlock.getLowestValue(), bigBlock.getHighestValue()));
+        allocator.release(bigBlock);
+        allocator.release(firstBlock);
+        try {
+            allocator.release(firstBlock);
+            assert(false);
+        }
+        catch( IllegalArgumentException e ) {
+            // expected, the block was already returned
+        }
+        allocator.flush();
+        RangeSet wholeSpace = new RangeSet();
+        wholeSpace.add(1, 1000000);
+        assert(allocator.freeRanges().equals(wholeSpace));
+        assert(allocator.allocate(2000000) == null);
+        
+        // a release spanning stripes is refused whole if any part is free
+        IdBlockAllocator halves = new IdBlockAllocator(
+                new IntegerRange<Integer>(1, 1000), 2, 256);
+        assert(halves.allocate(500).equals(new LongRange(1L, 500L)));
+        assert(halves.allocate(400).equals(new LongRange(501L, 900L)));
+        try {
+            halves.release(new LongRange(400L, 950L));
+            assert(false);
+        }
+        catch( IllegalArgumentException e ) {
+            // expected, 901 to 950 are free
+        }
+        RangeSet lastHundred = new RangeSet();
+        lastHundred.add(901, 1000);
+        assert(halves.freeRanges().equals(lastHundred));
+        halves.release(new LongRange(400L, 900L));
+        lastHundred.add(400, 900);
+        assert(halves.freeRanges().equals(lastHundred));
+        
+        // requests larger than a stripe are taken across stripes
+        IdBlockAllocator quarters = new IdBlockAllocator(
+                new IntegerRange<Integer>(1, 1000), 4, 256);
+        assert(quarters.allocate(1000).equals(new LongRange(1L, 1000L)));
+        assert(quarters.freeRanges().isEmpty());
+        assert(quarters.allocate(1) == null);
+        quarters.release(new LongRange(1L, 1000L));
+        assert(quarters.allocate(300).equals(new LongRange(1L, 300L)));
+        assert(quarters.allocate(600).equals(new LongRange(301L, 900L)));
+        // only 901 to 1000 are left, fewer than asked for
+        assert(quarters.allocate(200) == null);
+        quarters.release(new LongRange(1L, 300L));
+        // 1 to 300 and 901 to 1000 are free but do not touch
+        assert(quarters.allocate(350) == null);
+        assert(quarters.allocate(250).equals(new LongRange(1L, 250L)));
+        
+        final List<LongRange> leased = Collections.synchronizedList(new ArrayList<LongRange>());
+        Thread[] allocators = new Thread[4];
+        for( int t = 0; t < allocators.length; t++ ) {
+            final long seed = t;
+            allocators[t] = new Thread() {
+                @Override
+                public void run() {
+                    Random threadRandom = new Random(seed);
+                    List<LongRange> mine = new ArrayList<>();
+                    for( int i = 0; i < 20000; i++ ) {
+                        if( !mine.isEmpty() && threadRandom.nextInt(3) == 0 ) {
+                            allocator.release(mine.remove(mine.size() - 1));
+                        }
+                        else {
+                            LongRange block = allocator.allocate(
+                                    1 + threadRandom.nextInt(i % 100 == 0 ? 1000 : 20));
+                            if( block != null ) mine.add(block);
+                        }
+                    }
+                    leased.addAll(mine);
+                    allocator.flush();
+                }
+            };
+            allocators[t].start();
+        }
+        for( Thread thread : allocators ) thread.join();
+        long[] heldLows = new long[leased.size()];
+        long[] heldHighs = new long[leased.size()];
+        RangeSet held = new RangeSet();
+        for( int i = 0; i < leased.size(); i++ ) {
+            heldLows[i] = leased.get(i).getLowestValue();
+            heldHighs[i] = leased.get(i).getHighestValue();
+            held.add(leased.get(i));
+        }
+        // no two leased blocks may share an ID
+        IntervalIndex heldIndex = new IntervalIndex(heldLows, heldHighs);
+        for( int i = 0; i < leased.size(); i++ ) {
+            assert(heldIndex.countOverlapping(heldLows[i], heldHighs[i]) == 1);
+        }
+        assert(!held.isEmpty());
+        assert(held.union(allocator.freeRanges()).equals(wholeSpace));
+        for( LongRange block : leased ) allocator.release(block);
+        assert(allocator.freeRanges().equals(wholeSpace));
+    }
+    
+    /**
+     * Shared instances from the IntegerRange factory methods.
+     */
+    private static void cacheTests() throws Exception {
+        RangeCache cache = IntegerRange.getCache();
+        cache.clear();
+        IntegerRange<Short> parsed = IntegerRange.parse("[3,9)");
+        assert(parsed.getLowestValue() == 3 && parsed.getHighestValue() == 8);
+        assert(IntegerRange.<Short>parse("[3,9)") == parsed);
+        assert(IntegerRange.<Short>parse("(2,8]") == parsed);
+        assert(IntegerRange.of((short)8, (short)3) == parsed);
+        assert(IntegerRange.of(3, 8) != (Object)parsed);
+        assert(IntegerRange.of(3, 8).getRangeType() == IntegerRange.RangeType.INTEGER);
+        IntegerRange<BigInteger> bigParsed = IntegerRange.parse(
+                "[-100000000000000000000000,100000000000000000000000]");
+        assert(IntegerRange.of(bigParsed.getHighestValue(),
+                bigParsed.getLowestValue()) == bigParsed);
+        assert(cache.getHitCount() == 4 && cache.getMissCount() == 4);
+        try {
+            IntegerRange.parse("[9,3]");
+            assert(false);
+        }
+        catch( IllegalArgumentException e ) {
+            // expected, and nothing is cached
+        }
+        
+        // the cache stays within its capacity and keeps recent entries
+        for( int i = 0; i < cache.getCapacity() * 2; i++ ) IntegerRange.of(0L, (long)i);
+        assert(cache.size() <= cache.getCapacity());
+        long hits = cache.getHitCount();
+        IntegerRange.of(0L, (long)cache.getCapacity() * 2 - 1);
+        assert(cache.getHitCount() == hits + 1);
+        
+        final IntegerRange<Integer> shared = IntegerRange.of(-1, 1);
+        Thread[] readers = new Thread[4];
+        final boolean[] allShared = { true, true, true, true };
+        for( int t = 0; t < readers.length; t++ ) {
+            final int index = t;
+            readers[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for( int i = 0; i < 10000; i++ ) {
+                            if( IntegerRange.of(1, -1) != shared ) allShared[index] = false;
+                            IntegerRange.of(index, i);
+                        }
+                    }
+                    catch( Exception e ) {
+                        allShared[index] = false;
+                    }
+                }
+            };
+            readers[t].start();
+        }
+        for( Thread reader : readers ) reader.join();
+        for( boolean wasShared : allShared ) assert(wasShared);
+    }
+    
+    /**
+     * Compressed point sets, checked against BitSets.
+     */
+    private static void compressedSetTests( Random random ) throws Exception {
+        CompressedIntSet billion = CompressedIntSet.of(
+                new IntegerRange<Integer>(-500000000, 499999999));
+        assert(billion.cardinality() == 1000000000L);
+        assert(billion.sizeInBytes() < 1 << 20);
+        assert(billion.contains(-500000000) && billion.contains(499999999));
+        assert(!billion.contains(-500000001) && !billion.contains(500000000));
+        assert(billion.containsRange(new IntRange(-1000, 1000)));
+        assert(!billion.containsRange(new IntRange(0, 500000000)));
+        CompressedIntSet everything = CompressedIntSet.of(
+                new IntegerRange<Long>((long)Integer.MIN_VALUE, (long)Integer.MAX_VALUE));
+        assert(everything.cardinality() == 1L << 32);
+        assert(everything.intersection(billion).cardinality() == 1000000000L);
+        assert(everything.union(billion).cardinality() == 1L << 32);
+        try {
+            CompressedIntSet.of(new IntegerRange<Long>(0L, 1L << 40));
+            assert(false);
+        }
+        catch( IllegalArgumentException e ) {
+            // expected, the range is wider than an int
+        }
+        
+        // random mixes of points and ranges straddling chunk boundaries
+        int domain = 1 << 19;
+        for( int round = 0; round < 20; round++ ) {
+            CompressedIntSet[] sets = new CompressedIntSet[2];
+            BitSet[] bits = new BitSet[2];
+            for( int s = 0; s < 2; s++ ) {
+                sets[s] = new CompressedIntSet();
+                bits[s] = new BitSet();
+                int additions = 1 + random.nextInt(round % 4 == 0 ? 20000 : 300);
+                for( int i = 0; i < additions; i++ ) {
+                    int low = random.nextInt(domain);
+                    int length = random.nextInt(4) == 0 ? random.nextInt(70000) : 0;
+                    int high = Math.min(domain - 1, low + length);
+                    if( low == high && random.nextBoolean() ) sets[s].add(low);
+                    else sets[s].add(low, high);
+                    bits[s].set(low, high + 1);
+                }
+                assert(sets[s].cardinality() == bits[s].cardinality());
+            }
+            CompressedIntSet union = sets[0].union(sets[1]);
+            CompressedIntSet intersection = sets[0].intersection(sets[1]);
+            BitSet unionBits = (BitSet)bits[0].clone();
+            unionBits.or(bits[1]);
+            BitSet intersectionBits = (BitSet)bits[0].clone();
+            intersectionBits.and(bits[1]);
+            assert(union.cardinality() == unionBits.cardinality());
+            assert(intersection.cardinality() == intersectionBits.cardinality());
+            for( int i = 0; i < 2000; i++ ) {
+                int value = random.nextInt(domain + 200) - 100;
+                boolean inUnion = value >= 0 && unionBits.get(value);
+                boolean inIntersection = value >= 0 && intersectionBits.get(value);
+                assert(union.contains(value) == inUnion);
+                assert(intersection.contains(value) == inIntersection);
+                assert(sets[0].contains(value) == (value >= 0 && bits[0].get(value)));
+            }
+            final BitSet visited = new BitSet();
+            union.forEach(new IntConsumer() {
+                @Override
+                public void accept( int value ) {
+                    visited.set(value);
+                }
+            });
+            assert(visited.equals(unionBits));
+            assert(CompressedIntSet.of(union.toRangeSet()).equals(union));
+        }
+        CompressedIntSet negatives = new CompressedIntSet();
+        negatives.add(-3);
+        negatives.add(-70000, -65536);
+        negatives.add(5);
+        final List<String> negativeRanges = new ArrayList<>();
+        negatives.forEachRange(new RangeConsumer() {
+            @Override
+            public void accept( long lowestValue, long highestValue ) {
+                negativeRanges.add(lowestValue + ".." + highestValue);
+            }
+        });
+        assert(negativeRanges.toString().equals(
+                "[-70000..-65537, -65536..-65536, -3..-3, 5..5]"));
+    }
 }
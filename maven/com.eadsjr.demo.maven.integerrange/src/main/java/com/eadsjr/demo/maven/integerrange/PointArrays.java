@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+/**
+ * Min/max reductions over primitive point arrays, used by the bulk contains
+ * checks. Each loop keeps four independent accumulators with no branches, the
+ * shape the JIT turns into SIMD code, and the bounds are then compared once.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+final class PointArrays {
+
+    private PointArrays() {
+    }
+
+    /**
+     * @return true if every value lies in [low, high]; true when empty
+     */
+    static boolean allWithin( int[] values, long low, long high ) {
+        int length = values.length;
+        if( length == 0 ) return true;
+        int min0 = values[0], min1 = min0, min2 = min0, min3 = min0;
+        int max0 = min0, max1 = min0, max2 = min0, max3 = min0;
+        int i = 0;
+        for( ; i + 3 < length; i += 4 ) {
+            min0 = Math.min(min0, values[i]);
+            max0 = Math.max(max0, values[i]);
+            min1 = Math.min(min1, values[i + 1]);
+            max1 = Math.max(max1, values[i + 1]);
+            min2 = Math.min(min2, values[i + 2]);
+            max2 = Math.max(max2, values[i + 2]);
+            min3 = Math.min(min3, values[i + 3]);
+            max3 = Math.max(max3, values[i + 3]);
+        }
+        for( ; i < length; i++ ) {
+            min0 = Math.min(min0, values[i]);
+            max0 = Math.max(max0, values[i]);
+        }
+        int min = Math.min(Math.min(min0, min1), Math.min(min2, min3));
+        int max = Math.max(Math.max(max0, max1), Math.max(max2, max3));
+        return low <= min && max <= high;
+    }
+
+    /**
+     * @return true if every value lies in [low, high]; true when empty
+     */
+    static boolean allWithin( long[] values, long low, long high ) {
+        int length = values.length;
+        if( length == 0 ) return true;
+        long min0 = values[0], min1 = min0, min2 = min0, min3 = min0;
+        long max0 = min0, max1 = min0, max2 = min0, max3 = min0;
+        int i = 0;
+        for( ; i + 3 < length; i += 4 ) {
+            min0 = Math.min(min0, values[i]);
+            max0 = Math.max(max0, values[i]);
+            min1 = Math.min(min1, values[i + 1]);
+            max1 = Math.max(max1, values[i + 1]);
+            min2 = Math.min(min2, values[i + 2]);
+            max2 = Math.max(max2, values[i + 2]);
+            min3 = Math.min(min3, values[i + 3]);
+            max3 = Math.max(max3, values[i + 3]);
+        }
+        for( ; i < length; i++ ) {
+            min0 = Math.min(min0, values[i]);
+            max0 = Math.max(max0, values[i]);
+        }
+        long min = Math.min(Math.min(min0, min1), Math.min(min2, min3));
+        long max = Math.max(Math.max(max0, max1), Math.max(max2, max3));
+        return low <= min && max <= high;
+    }
+}
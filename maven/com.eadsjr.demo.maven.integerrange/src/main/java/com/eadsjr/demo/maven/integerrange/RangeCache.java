@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The bounded cache behind IntegerRange.of() and IntegerRange.parse(), which
+ * hands out one shared instance for each range that is asked for often.
+ *
+ * Entries are spread over independently locked stripes, each a LinkedHashMap
+ * in access order that evicts its least recently used entry once full, so
+ * threads looking up different ranges rarely wait on one another. Hits and
+ * misses are counted with LongAdders for the same reason.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class RangeCache {
+    private static final int STRIPE_COUNT = 16;
+    // how far a remixed hash is shifted to leave a stripe index
+    private static final int STRIPE_SHIFT = Integer.numberOfLeadingZeros(STRIPE_COUNT - 1);
+
+    private final Stripe[] stripes;
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the most entries to hold, spread over the stripes
+     */
+    RangeCache( int capacity ) {
+        int perStripe = Math.max(1, (capacity + STRIPE_COUNT - 1) / STRIPE_COUNT);
+        this.capacity = perStripe * STRIPE_COUNT;
+        stripes = new Stripe[STRIPE_COUNT];
+        for( int i = 0; i < STRIPE_COUNT; i++ ) stripes[i] = new Stripe(perStripe);
+    }
+
+    /**
+     * @return the range cached under the key, or null, counting a hit or miss
+     */
+    IntegerRange<?> get( Object key ) {
+        Stripe stripe = stripeFor(key);
+        IntegerRange<?> range;
+        synchronized( stripe ) {
+            range = stripe.get(key);
+        }
+        if( range != null ) hits.increment();
+        else misses.increment();
+        return range;
+    }
+
+    /**
+     * Caches the range under the key unless another thread got there first.
+     *
+     * @return the range now cached under the key
+     */
+    IntegerRange<?> putIfAbsent( Object key, IntegerRange<?> range ) {
+        Stripe stripe = stripeFor(key);
+        synchronized( stripe ) {
+            IntegerRange<?> existing = stripe.get(key);
+            if( existing != null ) return existing;
+            stripe.put(key, range);
+            return range;
+        }
+    }
+
+    /**
+     * Picks a stripe from the high bits of the remixed hash. The low bits
+     * choose the bucket inside the stripe's map, so a stripe picked with
+     * them would use only one bucket in sixteen.
+     */
+    private Stripe stripeFor( Object key ) {
+        return stripes[(key.hashCode() * 0x9E3779B9) >>> STRIPE_SHIFT];
+    }
+
+    /**
+     * @return the number of lookups that found a cached range
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to build a new range
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups that were hits, or 0 before any lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double)hitCount / total;
+    }
+
+    /**
+     * @return the most entries the cache holds
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of entries now cached
+     */
+    public int size() {
+        int size = 0;
+        for( Stripe stripe : stripes ) {
+            synchronized( stripe ) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Empties the cache and resets the statistics.
+     */
+    public void clear() {
+        for( Stripe stripe : stripes ) {
+            synchronized( stripe ) {
+                stripe.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Builds the key for a range's endpoints, which may be given in either
+     * order. Numbers of different types are never equal, so a SHORT range
+     * and an INTEGER range with the same values have different keys.
+     */
+    static <T extends Number & Comparable<T>> Object endpointKey( T firstpoint,
+            T secondpoint ) {
+        if( firstpoint.getClass() == secondpoint.getClass()
+                && firstpoint.compareTo(secondpoint) > 0 ) {
+            return new EndpointKey(secondpoint, firstpoint);
+        }
+        return new EndpointKey(firstpoint, secondpoint);
+    }
+
+    private static final class EndpointKey {
+        private final Number lowestValue;
+        private final Number highestValue;
+
+        EndpointKey( Number lowestValue, Number highestValue ) {
+            this.lowestValue = lowestValue;
+            this.highestValue = highestValue;
+        }
+
+        @Override
+        public boolean equals( Object other ) {
+            if( !(other instanceof EndpointKey) ) return false;
+            EndpointKey key = (EndpointKey)other;
+            return lowestValue.equals(key.lowestValue)
+                    && highestValue.equals(key.highestValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return lowestValue.hashCode() * 31 + highestValue.hashCode();
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<Object, IntegerRange<?>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int limit;
+
+        Stripe( int limit ) {
+            super(16, 0.75f, true);
+            this.limit = limit;
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Object, IntegerRange<?>> eldest ) {
+            return size() > limit;
+        }
+    }
+}
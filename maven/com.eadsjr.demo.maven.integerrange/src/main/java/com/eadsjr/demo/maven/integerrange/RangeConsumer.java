@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+/**
+ * Receives inclusive ranges as primitive endpoints, so producers such as
+ * RangeParser can hand ranges to a collection without creating range objects.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public interface RangeConsumer {
+
+    /**
+     * @param lowestValue the lowest value in the range
+     * @param highestValue the highest value in the range, not below lowestValue
+     */
+    void accept( long lowestValue, long highestValue );
+}
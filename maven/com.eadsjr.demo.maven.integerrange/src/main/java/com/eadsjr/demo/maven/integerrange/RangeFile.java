@@ -0,0 +1,382 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A compact binary form of a RangeSet that is queried where it lies, usually
+ * in a memory-mapped file, without being read into objects first. Opening a
+ * file only checks its header, so it is equally fast for any number of
+ * ranges.
+ *
+ * The format is big-endian:
+ *
+ *   header  magic "RNGS", version (1 byte), RangeType ordinal (1 byte),
+ *           ranges per block (2 bytes), range count (4 bytes),
+ *           block count (4 bytes)
+ *   index   the offset of each block from the start of the data (4 bytes each)
+ *   data    the blocks, one after the other
+ *
+ * Each block holds up to 64 ranges as varints. The first lowest value is
+ * written whole, zigzag encoded so negative values stay short. After it come
+ * deltas, which are never negative: each range's size less one, and the gap
+ * from each highest value to the next lowest value. A lookup binary searches
+ * the index, decoding only the first value of each block it probes, and then
+ * decodes a single block.
+ *
+ * Files are limited to 2 GB, the most one mapping can hold, and BIGINT ranges
+ * are not supported. Instances are immutable and safe to share.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class RangeFile {
+    private static final int MAGIC = 0x524E4753; // "RNGS"
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 64;
+    private static final int HEADER_SIZE = 16;
+
+    private final ByteBuffer bytes;
+    private final IntegerRange.RangeType rangeType;
+    private final int blockSize;
+    private final int count;
+    private final int blockCount;
+    private final int dataStart;
+
+    /**
+     * Reads the header of a range file held in a buffer. The ranges between
+     * the buffer's position and limit are queried in place, and the buffer's
+     * position is not changed.
+     *
+     * @param buffer the contents of a range file
+     * @throws IOException if the buffer does not hold a valid range file
+     */
+    public RangeFile( ByteBuffer buffer ) throws IOException {
+        bytes = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        if( bytes.limit() < HEADER_SIZE || bytes.getInt(0) != MAGIC )
+            throw new IOException("not a range file");
+        if( bytes.get(4) != VERSION )
+            throw new IOException("unsupported range file version " + bytes.get(4));
+        int type = bytes.get(5);
+        IntegerRange.RangeType[] types = IntegerRange.RangeType.values();
+        if( type < 0 || type >= types.length
+                || types[type] == IntegerRange.RangeType.BIGINT )
+            throw new IOException("unsupported range type " + type);
+        rangeType = types[type];
+        blockSize = bytes.getShort(6);
+        count = bytes.getInt(8);
+        blockCount = bytes.getInt(12);
+        if( blockSize < 1 || count < 0
+                || blockCount != (int)(((long)count + blockSize - 1) / blockSize) )
+            throw new IOException("corrupt range file header");
+        dataStart = HEADER_SIZE + blockCount * 4;
+        if( dataStart > bytes.limit() )
+            throw new IOException("truncated range file");
+    }
+
+    /**
+     * Maps a range file into memory. The mapping outlives the open file, so
+     * nothing needs to be closed.
+     *
+     * @param file a file written by write()
+     * @return the file, ready to query
+     * @throws IOException if the file cannot be read or is not a range file
+     */
+    public static RangeFile open( Path file ) throws IOException {
+        try( FileChannel channel = FileChannel.open(file, StandardOpenOption.READ) ) {
+            if( channel.size() > Integer.MAX_VALUE )
+                throw new IOException("range file larger than 2 GB");
+            return new RangeFile(channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the ranges to a file, replacing anything already there.
+     *
+     * @param ranges the ranges to write
+     * @param rangeType the type the ranges are of, recorded in the header
+     * @param file where to write them
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the type is BIGINT, or the ranges do
+     *         not fit in it
+     */
+    public static void write( RangeSet ranges, IntegerRange.RangeType rangeType,
+            Path file ) throws IOException, IllegalArgumentException {
+        try( OutputStream out = Files.newOutputStream(file) ) {
+            write(ranges, rangeType, out);
+        }
+    }
+
+    /**
+     * Writes the ranges to a stream, which is left open.
+     *
+     * @param ranges the ranges to write
+     * @param rangeType the type the ranges are of, recorded in the header
+     * @param out where to write them
+     * @throws IOException if the stream cannot be written
+     * @throws IllegalArgumentException if the type is BIGINT, or the ranges do
+     *         not fit in it
+     */
+    public static void write( RangeSet ranges, IntegerRange.RangeType rangeType,
+            OutputStream out ) throws IOException, IllegalArgumentException {
+        int count = ranges.rangeCount();
+        checkFits(ranges, rangeType);
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        // encode the data first, since the index ahead of it needs its offsets
+        int[] offsets = new int[blockCount];
+        byte[] data = new byte[Math.max(16, count * 4)];
+        int size = 0;
+        long previousHigh = 0;
+        for( int i = 0; i < count; i++ ) {
+            if( data.length - size < 30 ) {
+                if( data.length == Integer.MAX_VALUE )
+                    throw new IOException("range file would exceed 2 GB");
+                data = Arrays.copyOf(data,
+                        (int)Math.min(Integer.MAX_VALUE, data.length * 2L));
+            }
+            long low = ranges.getLowestValue(i);
+            long high = ranges.getHighestValue(i);
+            if( i % BLOCK_SIZE == 0 ) {
+                offsets[i / BLOCK_SIZE] = size;
+                size = putVarint(data, size, (low << 1) ^ (low >> 63));
+            }
+            else size = putVarint(data, size, low - previousHigh);
+            size = putVarint(data, size, high - low);
+            previousHigh = high;
+        }
+        if( HEADER_SIZE + blockCount * 4L + size > Integer.MAX_VALUE )
+            throw new IOException("range file would exceed 2 GB");
+
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(out));
+        stream.writeInt(MAGIC);
+        stream.writeByte(VERSION);
+        stream.writeByte(rangeType.ordinal());
+        stream.writeShort(BLOCK_SIZE);
+        stream.writeInt(count);
+        stream.writeInt(blockCount);
+        for( int offset : offsets ) stream.writeInt(offset);
+        stream.write(data, 0, size);
+        stream.flush();
+    }
+
+    private static void checkFits( RangeSet ranges, IntegerRange.RangeType rangeType )
+            throws IllegalArgumentException {
+        long min;
+        long max;
+        switch(rangeType) {
+            case SHORT:
+                min = Short.MIN_VALUE;
+                max = Short.MAX_VALUE;
+                break;
+            case INTEGER:
+                min = Integer.MIN_VALUE;
+                max = Integer.MAX_VALUE;
+                break;
+            case LONG:
+                return;
+            default:
+                throw new IllegalArgumentException(
+                        "BIGINT ranges cannot be written to a range file");
+        }
+        if( ranges.isEmpty() ) return;
+        if( ranges.getLowestValue(0) < min
+                || ranges.getHighestValue(ranges.rangeCount() - 1) > max )
+            throw new IllegalArgumentException("ranges do not fit in " + rangeType);
+    }
+
+    /**
+     * Writes an unsigned varint, seven bits per byte, lowest bits first.
+     *
+     * @return the position after it
+     */
+    private static int putVarint( byte[] data, int pos, long value ) {
+        while( (value & ~0x7FL) != 0 ) {
+            data[pos++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[pos++] = (byte)value;
+        return pos;
+    }
+
+    /**
+     * @return the type of the ranges, as given when the file was written
+     */
+    public IntegerRange.RangeType getRangeType() {
+        return rangeType;
+    }
+
+    /**
+     * @return the number of ranges in the file
+     */
+    public int rangeCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param value the value to look for
+     * @return true if a range in the file contains the value
+     */
+    public boolean contains( long value ) {
+        return overlapsRange(value, value);
+    }
+
+    /**
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     * @return true if a single range in the file holds every point of the range
+     */
+    public boolean containsRange( long firstpoint, long secondpoint ) {
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+        int block = lastBlockStartingAtOrBelow(low);
+        return block >= 0 && highestStartingAtOrBelow(block, low) >= high;
+    }
+
+    /**
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     * @return true if any point of the range is in the file
+     */
+    public boolean overlapsRange( long firstpoint, long secondpoint ) {
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+        // only the last range starting at or below high can reach back to low
+        int block = lastBlockStartingAtOrBelow(high);
+        return block >= 0 && highestStartingAtOrBelow(block, high) >= low;
+    }
+
+    /**
+     * Decodes every range in order.
+     *
+     * @param sink receives each range
+     */
+    public void forEach( RangeConsumer sink ) {
+        int pos = dataStart;
+        long low = 0;
+        long high = 0;
+        for( int i = 0; i < count; i++ ) {
+            long raw = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes.get(pos++);
+                raw |= (long)(b & 0x7F) << shift;
+                shift += 7;
+            } while( b < 0 );
+            low = i % blockSize == 0 ? (raw >>> 1) ^ -(raw & 1) : high + raw;
+
+            raw = 0;
+            shift = 0;
+            do {
+                b = bytes.get(pos++);
+                raw |= (long)(b & 0x7F) << shift;
+                shift += 7;
+            } while( b < 0 );
+            high = low + raw;
+            sink.accept(low, high);
+        }
+    }
+
+    /**
+     * @return the ranges read into a new RangeSet
+     */
+    public RangeSet toRangeSet() {
+        RangeSet set = new RangeSet(count);
+        forEach(set);
+        return set;
+    }
+
+    /**
+     * @return the last block whose first lowest value is at or below key, or
+     *         -1 if there is none
+     */
+    private int lastBlockStartingAtOrBelow( long key ) {
+        int low = 0;
+        int high = blockCount - 1;
+        int found = -1;
+        while( low <= high ) {
+            int middle = (low + high) >>> 1;
+            if( firstLowOf(middle) <= key ) {
+                found = middle;
+                low = middle + 1;
+            }
+            else high = middle - 1;
+        }
+        return found;
+    }
+
+    private long firstLowOf( int block ) {
+        int pos = dataStart + bytes.getInt(HEADER_SIZE + block * 4);
+        long raw = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes.get(pos++);
+            raw |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        } while( b < 0 );
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Scans a block whose first lowest value is at or below key.
+     *
+     * @return the highest value of the last range in the block starting at
+     *         or below key
+     */
+    private long highestStartingAtOrBelow( int block, long key ) {
+        int pos = dataStart + bytes.getInt(HEADER_SIZE + block * 4);
+        int tokens = 2 * Math.min(blockSize, count - block * blockSize);
+        long low = 0;
+        long high = 0;
+        for( int token = 0; token < tokens; token++ ) {
+            long raw = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes.get(pos++);
+                raw |= (long)(b & 0x7F) << shift;
+                shift += 7;
+            } while( b < 0 );
+            if( token == 0 ) low = (raw >>> 1) ^ -(raw & 1);
+            else if( (token & 1) == 1 ) high = low + raw;
+            else {
+                long next = high + raw;
+                if( next > key ) break;
+                low = next;
+            }
+        }
+        // the first range's size is always read before the loop can stop
+        return high;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds every overlapping pair between two collections of ranges with a
+ * sweep line, instead of testing every range against every other.
+ *
+ * Both sides are sorted by lowest value and walked together. Each side keeps
+ * the ranges it has passed that are still open; when a range starts, the
+ * other side's open ranges that have ended are dropped and every one left
+ * overlaps it. Each pair is found exactly once, when its later starting range
+ * is reached, so the sweep costs O((n + m) log(n + m) + k) for k pairs.
+ *
+ * For parallel joins the key space is cut at quantiles of the lowest values,
+ * and each fork-join task sweeps one slice, reporting only the pairs whose
+ * later start falls in its slice. A slice opens with the ranges that started
+ * before it and are still open; those are found by binary search on the
+ * lowest values and on a running maximum of the highest values, so only the
+ * ranges from the first one that could still be open are scanned, rather
+ * than every earlier range.
+ *
+ * Pairs are streamed to a PairConsumer and never collected. In a parallel
+ * join the consumer is called from several threads at once.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class RangeJoin {
+
+    /**
+     * Slices smaller than this are not worth a task of their own.
+     */
+    private static final int MIN_SLICE_SIZE = 4096;
+
+    /**
+     * Receives overlapping pairs by their positions in the inputs.
+     */
+    public interface PairConsumer {
+        /**
+         * @param leftIndex position of the range in the left input
+         * @param rightIndex position of the range in the right input
+         */
+        void accept( int leftIndex, int rightIndex );
+    }
+
+    private RangeJoin() {
+    }
+
+    /**
+     * Joins two lists of SHORT, INTEGER or LONG ranges on one thread.
+     *
+     * @param left the left ranges
+     * @param right the right ranges
+     * @param consumer receives each overlapping pair
+     * @throws UnsupportedOperationException if any range is BIGINT
+     */
+    public static void join( List<? extends IntegerRange<?>> left,
+            List<? extends IntegerRange<?>> right, PairConsumer consumer )
+            throws UnsupportedOperationException {
+        new Side(left).join(new Side(right), consumer, null);
+    }
+
+    /**
+     * Joins two lists of SHORT, INTEGER or LONG ranges in the pool.
+     *
+     * @param left the left ranges
+     * @param right the right ranges
+     * @param consumer receives each overlapping pair, from any pool thread
+     * @param pool the pool to run the slices in
+     * @throws UnsupportedOperationException if any range is BIGINT
+     */
+    public static void join( List<? extends IntegerRange<?>> left,
+            List<? extends IntegerRange<?>> right, PairConsumer consumer,
+            ForkJoinPool pool ) throws UnsupportedOperationException {
+        new Side(left).join(new Side(right), consumer, pool);
+    }
+
+    /**
+     * Joins ranges given as endpoint arrays, [lows[i], highs[i]] inclusive.
+     * The arrays are not modified.
+     *
+     * @param pool the pool to run the slices in, or null for one thread
+     */
+    public static void join( long[] leftLows, long[] leftHighs,
+            long[] rightLows, long[] rightHighs, PairConsumer consumer,
+            ForkJoinPool pool ) {
+        new Side(leftLows, leftHighs).join(
+                new Side(rightLows, rightHighs), consumer, pool);
+    }
+
+    /**
+     * One input, sorted by lowest value, with each range's input position.
+     */
+    private static final class Side {
+        final long[] lows;
+        final long[] highs;
+        final int[] ids;
+        // the highest of highs[0..k] at k, built only for parallel joins
+        long[] maxHighs;
+
+        Side( List<? extends IntegerRange<?>> ranges ) {
+            int size = ranges.size();
+            lows = new long[size];
+            highs = new long[size];
+            ids = new int[size];
+            int i = 0;
+            for( IntegerRange<?> range : ranges ) {
+                LongRange longRange = range.toLongRange();
+                lows[i] = longRange.getLowestValue();
+                highs[i] = longRange.getHighestValue();
+                ids[i] = i++;
+            }
+            RangeSort.sort(lows, highs, ids, ForkJoinPool.commonPool());
+        }
+
+        Side( long[] lows, long[] highs ) {
+            if( lows.length != highs.length )
+                throw new IllegalArgumentException("endpoint arrays differ in length");
+            int size = lows.length;
+            this.lows = new long[size];
+            this.highs = new long[size];
+            ids = new int[size];
+            for( int i = 0; i < size; i++ ) {
+                this.lows[i] = Math.min(lows[i], highs[i]);
+                this.highs[i] = Math.max(lows[i], highs[i]);
+                ids[i] = i;
+            }
+            RangeSort.sort(this.lows, this.highs, ids, ForkJoinPool.commonPool());
+        }
+
+        int size() {
+            return lows.length;
+        }
+
+        void join( Side right, PairConsumer consumer, ForkJoinPool pool ) {
+            if( size() == 0 || right.size() == 0 ) return;
+            int total = size() + right.size();
+            int slices = pool == null ? 1 : Math.min(
+                    pool.getParallelism() * 4, total / MIN_SLICE_SIZE);
+            if( slices <= 1 ) {
+                sweep(this, right, Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+                return;
+            }
+
+            buildMaxHighs();
+            right.buildMaxHighs();
+            long[] cuts = cuts(right, slices);
+            List<SliceTask> tasks = new ArrayList<>(cuts.length + 1);
+            long from = Long.MIN_VALUE;
+            for( long cut : cuts ) {
+                tasks.add(new SliceTask(this, right, from, cut - 1, consumer));
+                from = cut;
+            }
+            tasks.add(new SliceTask(this, right, from, Long.MAX_VALUE, consumer));
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        void buildMaxHighs() {
+            maxHighs = new long[size()];
+            long max = Long.MIN_VALUE;
+            for( int k = 0; k < maxHighs.length; k++ ) {
+                max = Math.max(max, highs[k]);
+                maxHighs[k] = max;
+            }
+        }
+
+        /**
+         * @return the first position whose value is at least key, in a
+         *         non-decreasing array, or its length if there is none
+         */
+        static int firstAtLeast( long[] values, long key ) {
+            int low = 0;
+            int high = values.length;
+            while( low < high ) {
+                int middle = (low + high) >>> 1;
+                if( values[middle] < key ) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        /**
+         * Adds to the open list every range that starts before from and is
+         * still open at it.
+         *
+         * @return the position of the first range starting at or after from
+         */
+        int seed( OpenList open, long from ) {
+            if( from == Long.MIN_VALUE ) return 0;
+            int end = firstAtLeast(lows, from);
+            // no range before this one reaches from
+            int begin = maxHighs == null ? 0 : firstAtLeast(maxHighs, from);
+            for( int k = begin; k < end; k++ ) {
+                if( highs[k] >= from ) open.add(k);
+            }
+            return end;
+        }
+
+        /**
+         * @return strictly increasing slice boundaries taken at quantiles of
+         *         the lowest values on both sides
+         */
+        long[] cuts( Side right, int slices ) {
+            long[] cuts = new long[slices - 1];
+            int count = 0;
+            for( int s = 1; s < slices; s++ ) {
+                // alternate sides so both distributions shape the slices
+                Side side = (s & 1) == 0 ? this : right;
+                long cut = side.lows[(int)((long)side.size() * s / slices)];
+                // a slice cannot end below Long.MIN_VALUE
+                if( cut != Long.MIN_VALUE ) cuts[count++] = cut;
+            }
+            Arrays.sort(cuts, 0, count);
+            int distinct = 0;
+            for( int i = 0; i < count; i++ ) {
+                if( distinct == 0 || cuts[i] != cuts[distinct - 1] ) {
+                    cuts[distinct++] = cuts[i];
+                }
+            }
+            return Arrays.copyOf(cuts, distinct);
+        }
+    }
+
+    private static final class SliceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Side left;
+        private final Side right;
+        private final long from;
+        private final long to;
+        private final PairConsumer consumer;
+
+        SliceTask( Side left, Side right, long from, long to,
+                PairConsumer consumer ) {
+            this.left = left;
+            this.right = right;
+            this.from = from;
+            this.to = to;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            sweep(left, right, from, to, consumer);
+        }
+    }
+
+    /**
+     * Sweeps both sides, reporting the pairs whose later lowest value lies in
+     * [from, to]. Ranges starting before from only seed the open lists, so
+     * every range the loop reaches starts in the slice.
+     */
+    private static void sweep( Side left, Side right, long from, long to,
+            PairConsumer consumer ) {
+        OpenList openLeft = new OpenList();
+        OpenList openRight = new OpenList();
+        int i = left.seed(openLeft, from);
+        int j = right.seed(openRight, from);
+        int leftSize = left.size();
+        int rightSize = right.size();
+        while( i < leftSize || j < rightSize ) {
+            boolean takeLeft = j >= rightSize
+                    || (i < leftSize && left.lows[i] <= right.lows[j]);
+            long start = takeLeft ? left.lows[i] : right.lows[j];
+            if( start > to ) break;
+            if( takeLeft ) {
+                openRight.report(right, start, left.ids[i], consumer, true);
+                openLeft.add(i++);
+            }
+            else {
+                openLeft.report(left, start, right.ids[j], consumer, false);
+                openRight.add(j++);
+            }
+        }
+    }
+
+    /**
+     * The sorted positions of the ranges on one side that may still overlap
+     * ranges yet to start. Ended ranges are dropped lazily while reporting.
+     */
+    private static final class OpenList {
+        private int[] positions = new int[16];
+        private int count;
+
+        void add( int position ) {
+            if( count == positions.length ) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count++] = position;
+        }
+
+        /**
+         * Reports the pairing of id with every open range still covering
+         * start, removing those that ended before it.
+         *
+         * @param idIsLeft true if id belongs to the left input
+         */
+        void report( Side side, long start, int id, PairConsumer consumer,
+                boolean idIsLeft ) {
+            int kept = 0;
+            for( int k = 0; k < count; k++ ) {
+                int position = positions[k];
+                if( side.highs[position] < start ) continue;
+                positions[kept++] = position;
+                if( idIsLeft ) consumer.accept(id, side.ids[position]);
+                else consumer.accept(side.ids[position], id);
+            }
+            count = kept;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.Arrays;
+
+/**
+ * Maps non-overlapping inclusive ranges of long values to values, such as ID
+ * blocks to shards. The ranges live in sorted primitive arrays, so looking up
+ * the value for a point is one binary search and allocates nothing.
+ *
+ * When created with the Eytzinger option the lowest values are also kept in
+ * breadth-first (Eytzinger) order, which makes the search touch memory in a
+ * predictable pattern and suits large maps better than a plain binary search.
+ * A put or remove only marks that copy stale, and the first lookup after a
+ * change rebuilds it in O(n), so loading a map costs the same as without the
+ * option however many changes come between lookups.
+ *
+ * The map is not synchronized. Lookups may run concurrently with each other
+ * but not with changes; a lookup that finds the copy stale rebuilds it under
+ * the map's lock, so concurrent lookups never see it half built.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ * @param <V> the type of the mapped values
+ */
+public final class RangeMap<V> {
+    private static final int DEFAULT_CAPACITY = 8;
+    private static String RANGES_OVERLAP = "range overlaps a mapped range";
+
+    private long[] lows;
+    private long[] highs;
+    private Object[] values;
+    private int count;
+
+    private final boolean eytzinger;
+    private long[] eytzingerLows;
+    private int[] eytzingerIndexes;
+    // set by changes, cleared once the copy is rebuilt
+    private volatile boolean eytzingerStale;
+
+    public RangeMap() {
+        this(false);
+    }
+
+    /**
+     * @param eytzinger true to search an Eytzinger ordered copy of the keys
+     */
+    public RangeMap( boolean eytzinger ) {
+        this.eytzinger = eytzinger;
+        lows = new long[DEFAULT_CAPACITY];
+        highs = new long[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+        count = 0;
+        if( eytzinger ) {
+            eytzingerLows = new long[DEFAULT_CAPACITY + 1];
+            eytzingerIndexes = new int[DEFAULT_CAPACITY + 1];
+        }
+    }
+
+    /**
+     * Maps every point of the range to the value.
+     *
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     * @param value the value to map to
+     * @throws IllegalArgumentException if the range overlaps a mapped range
+     */
+    public void put( long firstpoint, long secondpoint, V value )
+            throws IllegalArgumentException {
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+        int index = firstLowAbove(high);
+        // the range before the insertion point must end before this one
+        if( index > 0 && highs[index - 1] >= low )
+            throw new IllegalArgumentException(RANGES_OVERLAP);
+
+        if( count == lows.length ) {
+            int capacity = lows.length * 2;
+            lows = Arrays.copyOf(lows, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(lows, index, lows, index + 1, count - index);
+        System.arraycopy(highs, index, highs, index + 1, count - index);
+        System.arraycopy(values, index, values, index + 1, count - index);
+        lows[index] = low;
+        highs[index] = high;
+        values[index] = value;
+        count++;
+        eytzingerStale = eytzinger;
+    }
+
+    public void put( LongRange range, V value ) throws IllegalArgumentException {
+        put(range.getLowestValue(), range.getHighestValue(), value);
+    }
+
+    /**
+     * @param range a SHORT, INTEGER or LONG range
+     * @param value the value to map to
+     * @throws IllegalArgumentException if the range overlaps a mapped range
+     * @throws UnsupportedOperationException for BIGINT ranges
+     */
+    public void put( IntegerRange<?> range, V value )
+            throws IllegalArgumentException, UnsupportedOperationException {
+        put(range.toLongRange(), value);
+    }
+
+    /**
+     * Removes the mapped range containing the point.
+     *
+     * @param point any point in the mapped range
+     * @return the value the range was mapped to, or null if none contained
+     *         the point
+     */
+    public V remove( long point ) {
+        int index = indexOf(point);
+        if( index < 0 ) return null;
+        V value = valueAt(index);
+        int tail = count - index - 1;
+        System.arraycopy(lows, index + 1, lows, index, tail);
+        System.arraycopy(highs, index + 1, highs, index, tail);
+        System.arraycopy(values, index + 1, values, index, tail);
+        count--;
+        values[count] = null;
+        eytzingerStale = eytzinger;
+        return value;
+    }
+
+    /**
+     * @param point the point to look up
+     * @return the value mapped to the range containing the point, or null
+     */
+    public V get( long point ) {
+        int index = indexOf(point);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    /**
+     * @param point the point to look up
+     * @param defaultValue returned when no range contains the point
+     * @return the value mapped to the range containing the point
+     */
+    public V getOrDefault( long point, V defaultValue ) {
+        int index = indexOf(point);
+        return index < 0 ? defaultValue : valueAt(index);
+    }
+
+    /**
+     * @param point the point to look up
+     * @return the mapped range containing the point, or null
+     */
+    public LongRange getRange( long point ) {
+        int index = indexOf(point);
+        return index < 0 ? null : new LongRange(lows[index], highs[index]);
+    }
+
+    /**
+     * @return the number of mapped ranges
+     */
+    public int size() {
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt( int index ) {
+        return (V)values[index];
+    }
+
+    /**
+     * @return the sorted index of the range containing the point, or -1
+     */
+    private int indexOf( long point ) {
+        if( eytzingerStale ) rebuildEytzinger();
+        int index = (eytzinger ? eytzingerLowAbove(point)
+                : firstLowAbove(point)) - 1;
+        if( index < 0 || highs[index] < point ) return -1;
+        return index;
+    }
+
+    /**
+     * @return the sorted index of the first range whose low end is above key,
+     *         or count if there is none
+     */
+    private int firstLowAbove( long key ) {
+        int low = 0;
+        int high = count;
+        while( low < high ) {
+            int middle = (low + high) >>> 1;
+            if( lows[middle] <= key ) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * The same search as firstLowAbove over the Eytzinger ordered copy. The
+     * descent has no data dependent branch to mispredict; afterwards the
+     * trailing one bits of k count the final steps that went right, and
+     * shifting them off lands on the answer.
+     */
+    private int eytzingerLowAbove( long key ) {
+        long[] keys = eytzingerLows;
+        int n = count;
+        int k = 1;
+        while( k <= n ) {
+            k = 2 * k + (keys[k] <= key ? 1 : 0);
+        }
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k == 0 ? n : eytzingerIndexes[k];
+    }
+
+    private synchronized void rebuildEytzinger() {
+        // another lookup may have rebuilt it while this one waited
+        if( !eytzingerStale ) return;
+        if( eytzingerLows.length < count + 1 ) {
+            eytzingerLows = new long[lows.length + 1];
+            eytzingerIndexes = new int[lows.length + 1];
+        }
+        fillEytzinger(0, 1);
+        eytzingerStale = false;
+    }
+
+    /**
+     * Lays the sorted lows out in breadth-first order with an in-order walk of
+     * the implicit tree rooted at k.
+     *
+     * @return the next sorted index to place
+     */
+    private int fillEytzinger( int sortedIndex, int k ) {
+        if( k <= count ) {
+            sortedIndex = fillEytzinger(sortedIndex, 2 * k);
+            eytzingerLows[k] = lows[sortedIndex];
+            eytzingerIndexes[k] = sortedIndex++;
+            sortedIndex = fillEytzinger(sortedIndex, 2 * k + 1);
+        }
+        return sortedIndex;
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parses ranges written in the same mathematical notation as the
+ * IntegerRange(String) constructor, one per line, straight into primitive
+ * endpoints. The input is scanned in place, whether it is a CharSequence or a
+ * ByteBuffer such as a memory-mapped file, and no objects are created per
+ * range: each one goes directly to a RangeConsumer.
+ *
+ * A bad line does not throw. It is counted, its position is recorded and
+ * passed to the ErrorListener if one is set, and parsing carries on with the
+ * next line. Blank lines are skipped, spaces and tabs are allowed around the
+ * numbers, and lines may end in "\r\n". Endpoints must fit in a long.
+ *
+ * A parser keeps its error counts between calls and is not thread safe.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class RangeParser {
+    public static final int MALFORMED_RANGE_STRING = 1;
+    public static final int RANGE_STRING_NUMBERS_INVERTED = 2;
+    public static final int RANGE_STRING_DEFINES_EMPTY_SET = 3;
+    public static final int NUMBER_OUT_OF_RANGE = 4;
+
+    /**
+     * Files are mapped in pieces no larger than this.
+     */
+    private static final long MAP_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Receives the position of each bad line.
+     */
+    public interface ErrorListener {
+        /**
+         * @param position offset of the offending character from the start
+         *        of the input
+         * @param errorCode one of the RangeParser error codes
+         */
+        void error( long position, int errorCode );
+    }
+
+    private ErrorListener errorListener;
+    private long errorCount;
+    private long firstErrorPosition = -1;
+    private int firstErrorCode;
+
+    // results of parseNumber, kept in fields so parsing allocates nothing
+    private long number;
+    private int failedAt;
+    private int failureCode;
+
+    /**
+     * @param errorListener notified of each bad line, or null
+     */
+    public void setErrorListener( ErrorListener errorListener ) {
+        this.errorListener = errorListener;
+    }
+
+    /**
+     * @return the number of bad lines seen so far
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return the position of the first error, or -1 if there has been none
+     */
+    public long getFirstErrorPosition() {
+        return firstErrorPosition;
+    }
+
+    /**
+     * @return the code of the first error, or 0 if there has been none
+     */
+    public int getFirstErrorCode() {
+        return firstErrorCode;
+    }
+
+    /**
+     * @param input lines of ranges
+     * @param sink receives each well formed range
+     * @return the number of ranges delivered to the sink
+     */
+    public long parse( CharSequence input, RangeConsumer sink ) {
+        return parse(new CharSource(input), 0, sink);
+    }
+
+    /**
+     * Parses the bytes between the buffer's position and limit as ASCII. The
+     * buffer's position is not changed.
+     *
+     * @param input lines of ranges
+     * @param sink receives each well formed range
+     * @return the number of ranges delivered to the sink
+     */
+    public long parse( ByteBuffer input, RangeConsumer sink ) {
+        return parse(new ByteSource(input), 0, sink);
+    }
+
+    /**
+     * Memory-maps the file and parses it in place. Large files are mapped one
+     * piece at a time, each piece ending on a line break.
+     *
+     * @param file a file of ranges, one per line
+     * @param sink receives each well formed range
+     * @return the number of ranges delivered to the sink
+     * @throws IOException if the file cannot be read
+     */
+    public long parse( Path file, RangeConsumer sink ) throws IOException {
+        try( FileChannel channel = FileChannel.open(file, StandardOpenOption.READ) ) {
+            long size = channel.size();
+            long start = 0;
+            long ranges = 0;
+            while( start < size ) {
+                long length = Math.min(MAP_CHUNK_SIZE, size - start);
+                MappedByteBuffer chunk = channel.map(
+                        FileChannel.MapMode.READ_ONLY, start, length);
+                if( start + length < size ) {
+                    // stop after the last full line; the rest goes next time
+                    int end = (int)length;
+                    while( end > 0 && chunk.get(end - 1) != '\n' ) end--;
+                    if( end > 0 ) length = end;
+                    chunk.limit((int)length);
+                }
+                ranges += parse(new ByteSource(chunk), start, sink);
+                start += length;
+            }
+            return ranges;
+        }
+    }
+
+    private long parse( Source in, long base, RangeConsumer sink ) {
+        int end = in.length();
+        int pos = 0;
+        long ranges = 0;
+        while( pos < end ) {
+            pos = skipBlanks(in, pos, end);
+            if( pos == end ) break;
+            int c = in.at(pos);
+            if( c == '\n' || c == '\r' ) {
+                pos++;
+                continue;
+            }
+
+            int lineStart = pos;
+            boolean lowInclusive;
+            if( c == '[' ) lowInclusive = true;
+            else if( c == '(' ) lowInclusive = false;
+            else {
+                pos = fail(in, base, pos, end, MALFORMED_RANGE_STRING);
+                continue;
+            }
+
+            pos = skipBlanks(in, pos + 1, end);
+            if( !parseNumber(in, pos, end) ) {
+                pos = fail(in, base, failedAt, end, failureCode);
+                continue;
+            }
+            long low = number;
+            pos = skipBlanks(in, failedAt, end);
+            if( pos == end || in.at(pos) != ',' ) {
+                pos = fail(in, base, pos, end, MALFORMED_RANGE_STRING);
+                continue;
+            }
+
+            pos = skipBlanks(in, pos + 1, end);
+            if( !parseNumber(in, pos, end) ) {
+                pos = fail(in, base, failedAt, end, failureCode);
+                continue;
+            }
+            long high = number;
+            pos = skipBlanks(in, failedAt, end);
+            boolean highInclusive;
+            c = pos < end ? in.at(pos) : -1;
+            if( c == ']' ) highInclusive = true;
+            else if( c == ')' ) highInclusive = false;
+            else {
+                pos = fail(in, base, pos, end, MALFORMED_RANGE_STRING);
+                continue;
+            }
+
+            pos = skipBlanks(in, pos + 1, end);
+            if( pos < end && in.at(pos) == '\r' ) pos++;
+            if( pos < end && in.at(pos) != '\n' ) {
+                pos = fail(in, base, pos, end, MALFORMED_RANGE_STRING);
+                continue;
+            }
+
+            if( low > high ) {
+                pos = fail(in, base, lineStart, end,
+                        RANGE_STRING_NUMBERS_INVERTED);
+                continue;
+            }
+            // adjust for inclusiveness at ends, reject the empty set
+            if( !lowInclusive ) {
+                if( low == Long.MAX_VALUE ) {
+                    pos = fail(in, base, lineStart, end,
+                            RANGE_STRING_DEFINES_EMPTY_SET);
+                    continue;
+                }
+                low++;
+            }
+            if( !highInclusive ) {
+                if( high == Long.MIN_VALUE ) {
+                    pos = fail(in, base, lineStart, end,
+                            RANGE_STRING_DEFINES_EMPTY_SET);
+                    continue;
+                }
+                high--;
+            }
+            if( low > high ) {
+                pos = fail(in, base, lineStart, end,
+                        RANGE_STRING_DEFINES_EMPTY_SET);
+                continue;
+            }
+
+            sink.accept(low, high);
+            ranges++;
+            pos++; // past the line break
+        }
+        return ranges;
+    }
+
+    /**
+     * Reads an optionally signed decimal long starting at pos into number. On
+     * success failedAt is left at the first character after it; on failure
+     * failedAt and failureCode describe the problem.
+     */
+    private boolean parseNumber( Source in, int pos, int end ) {
+        boolean negative = false;
+        if( pos < end && (in.at(pos) == '-' || in.at(pos) == '+') ) {
+            negative = in.at(pos) == '-';
+            pos++;
+        }
+        int digitsStart = pos;
+        // accumulate negatively, like Long.parseLong, so MIN_VALUE fits
+        long value = 0;
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        while( pos < end ) {
+            int digit = in.at(pos) - '0';
+            if( digit < 0 || digit > 9 ) break;
+            if( value < (limit + digit) / 10 ) {
+                failedAt = pos;
+                failureCode = NUMBER_OUT_OF_RANGE;
+                return false;
+            }
+            value = value * 10 - digit;
+            pos++;
+        }
+        if( pos == digitsStart ) {
+            failedAt = pos;
+            failureCode = MALFORMED_RANGE_STRING;
+            return false;
+        }
+        number = negative ? value : -value;
+        failedAt = pos;
+        return true;
+    }
+
+    private static int skipBlanks( Source in, int pos, int end ) {
+        while( pos < end ) {
+            int c = in.at(pos);
+            if( c != ' ' && c != '\t' ) break;
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Records an error and skips past the rest of the line.
+     *
+     * @return the position after the line break
+     */
+    private int fail( Source in, long base, int pos, int end, int errorCode ) {
+        long position = base + pos;
+        if( errorCount++ == 0 ) {
+            firstErrorPosition = position;
+            firstErrorCode = errorCode;
+        }
+        if( errorListener != null ) errorListener.error(position, errorCode);
+        while( pos < end && in.at(pos) != '\n' ) pos++;
+        return pos + 1;
+    }
+
+    /**
+     * Indexed access to the input. There are only ever two implementations,
+     * so the JIT can inline the calls.
+     */
+    private static abstract class Source {
+        abstract int length();
+        abstract int at( int index );
+    }
+
+    private static final class CharSource extends Source {
+        private final CharSequence chars;
+
+        CharSource( CharSequence chars ) {
+            this.chars = chars;
+        }
+
+        @Override
+        int length() {
+            return chars.length();
+        }
+
+        @Override
+        int at( int index ) {
+            return chars.charAt(index);
+        }
+    }
+
+    private static final class ByteSource extends Source {
+        private final ByteBuffer bytes;
+        private final int offset;
+        private final int length;
+
+        ByteSource( ByteBuffer bytes ) {
+            this.bytes = bytes;
+            this.offset = bytes.position();
+            this.length = bytes.remaining();
+        }
+
+        @Override
+        int length() {
+            return length;
+        }
+
+        @Override
+        int at( int index ) {
+            return bytes.get(offset + index) & 0xFF;
+        }
+    }
+}
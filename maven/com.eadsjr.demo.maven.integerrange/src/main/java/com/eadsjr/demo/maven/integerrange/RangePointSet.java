@@ -0,0 +1,294 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read-only sorted set view of every point in a SHORT, INTEGER or LONG
+ * range. Nothing is materialized: membership, size, first and last are
+ * answered from the endpoints, and iteration produces the points on demand.
+ * Elements are boxed in the range's own type, so the view compares equal to a
+ * TreeSet holding the same points.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ * @param <T> the boxed type of the points
+ */
+public final class RangePointSet<T extends Number & Comparable<T>>
+        extends AbstractSet<T> implements SortedSet<T> {
+
+    private final IntegerRange.RangeType rangeType;
+    private final long lowestValue;
+    private final long highestValue;
+    private final boolean empty;
+
+    /**
+     * @param rangeType the type of the points, not BIGINT
+     * @param lowestValue the lowest point, inclusive
+     * @param highestValue the highest point, inclusive
+     */
+    RangePointSet( IntegerRange.RangeType rangeType, long lowestValue,
+            long highestValue ) {
+        this(rangeType, lowestValue, highestValue, lowestValue > highestValue);
+    }
+
+    private RangePointSet( IntegerRange.RangeType rangeType, long lowestValue,
+            long highestValue, boolean empty ) {
+        if( rangeType == IntegerRange.RangeType.BIGINT )
+            throw new IllegalArgumentException("BIGINT points are not longs");
+        this.rangeType = rangeType;
+        this.lowestValue = lowestValue;
+        this.highestValue = highestValue;
+        this.empty = empty;
+    }
+
+    /**
+     * Boxes a point in the range's type.
+     */
+    @SuppressWarnings("unchecked")
+    private T box( long value ) {
+        switch(rangeType) {
+            case SHORT:
+                return (T)Short.valueOf((short)value);
+            case INTEGER:
+                return (T)Integer.valueOf((int)value);
+            default:
+                return (T)Long.valueOf(value);
+        }
+    }
+
+    /**
+     * @return true if the object is a boxed point of this set's type
+     */
+    private boolean isOfType( Object o ) {
+        switch(rangeType) {
+            case SHORT:
+                return o instanceof Short;
+            case INTEGER:
+                return o instanceof Integer;
+            default:
+                return o instanceof Long;
+        }
+    }
+
+    /**
+     * @param value a point to check
+     * @return true if the point is within the range
+     */
+    public boolean containsLong( long value ) {
+        return !empty && lowestValue <= value && value <= highestValue;
+    }
+
+    @Override
+    public boolean contains( Object o ) {
+        return isOfType(o) && containsLong(((Number)o).longValue());
+    }
+
+    /**
+     * Returns the number of points as a long. A set of more than
+     * Long.MAX_VALUE points reports Long.MAX_VALUE.
+     *
+     * @return the number of points
+     */
+    public long longSize() {
+        if( empty ) return 0;
+        long size = highestValue - lowestValue + 1;
+        return size > 0 ? size : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int size() {
+        return (int)Math.min(longSize(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    @Override
+    public T first() {
+        if( empty ) throw new NoSuchElementException();
+        return box(lowestValue);
+    }
+
+    @Override
+    public T last() {
+        if( empty ) throw new NoSuchElementException();
+        return box(highestValue);
+    }
+
+    /**
+     * @return the points in ascending order, unboxed
+     */
+    public PrimitiveIterator.OfLong longIterator() {
+        return Spliterators.iterator(longSpliterator());
+    }
+
+    /**
+     * @return a spliterator over the points that splits into even halves
+     */
+    public Spliterator.OfLong longSpliterator() {
+        if( empty ) return Spliterators.emptyLongSpliterator();
+        return new LongRangeSpliterator(lowestValue, highestValue);
+    }
+
+    /**
+     * @return a sequential stream of the points; call parallel() to split it
+     */
+    public LongStream longStream() {
+        return StreamSupport.longStream(longSpliterator(), false);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final PrimitiveIterator.OfLong points = longIterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return points.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return box(points.nextLong());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Points are always in natural order.
+     *
+     * @return null
+     */
+    @Override
+    public Comparator<? super T> comparator() {
+        return null;
+    }
+
+    @Override
+    public SortedSet<T> subSet( T fromElement, T toElement ) {
+        long from = fromElement.longValue();
+        long to = toElement.longValue();
+        if( from > to ) throw new IllegalArgumentException("fromElement > toElement");
+        return view(from, to, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet( T toElement ) {
+        return view(lowestValue, toElement.longValue(), false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet( T fromElement ) {
+        return view(fromElement.longValue(), highestValue, true);
+    }
+
+    /**
+     * Narrows the set to [from, to) or, if toInclusive, [from, to].
+     */
+    private SortedSet<T> view( long from, long to, boolean toInclusive ) {
+        if( !toInclusive ) {
+            if( to == Long.MIN_VALUE )
+                return new RangePointSet<T>(rangeType, 0, 0, true);
+            to -= 1;
+        }
+        long low = Math.max(from, lowestValue);
+        long high = Math.min(to, highestValue);
+        return new RangePointSet<T>(rangeType, low, high, empty || low > high);
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+        if( o instanceof RangePointSet ) {
+            RangePointSet<?> other = (RangePointSet<?>)o;
+            if( empty || other.empty ) return empty == other.empty;
+            return rangeType == other.rangeType
+                    && lowestValue == other.lowestValue
+                    && highestValue == other.highestValue;
+        }
+        return super.equals(o);
+    }
+
+    /**
+     * Keeps the Set contract, the sum of the points' hash codes, without
+     * visiting them. For SHORT and INTEGER a point hashes to itself, so the
+     * sum is an arithmetic series. A Long hashes to its low 32 bits XOR its
+     * high 32 bits, so the points are taken in blocks sharing their high
+     * bits: a partial block is summed bit by bit, and every full block sums
+     * to 2^31 modulo 2^32 whatever its high bits are.
+     */
+    @Override
+    public int hashCode() {
+        if( empty ) return 0;
+        if( rangeType != IntegerRange.RangeType.LONG ) {
+            // n * (low + high) is even, so halve whichever factor is
+            long count = highestValue - lowestValue + 1;
+            long ends = lowestValue + highestValue;
+            return (int)(count % 2 == 0 ? (count / 2) * ends : count * (ends / 2));
+        }
+        long lowBlock = lowestValue >> 32;
+        long highBlock = highestValue >> 32;
+        if( lowBlock == highBlock )
+            return xorSum(lowestValue & LOW_BITS, highestValue & LOW_BITS,
+                    (int)lowBlock);
+        long fullBlocks = highBlock - lowBlock - 1;
+        return xorSum(lowestValue & LOW_BITS, LOW_BITS, (int)lowBlock)
+                + xorSum(0, highestValue & LOW_BITS, (int)highBlock)
+                + (int)((fullBlocks & 1) << 31);
+    }
+
+    private static final long LOW_BITS = 0xFFFFFFFFL;
+
+    /**
+     * @return the sum, modulo 2^32, of low ^ high for every low from first to
+     *         last, which are unsigned 32-bit values
+     */
+    private static int xorSum( long first, long last, int high ) {
+        long count = last - first + 1;
+        int sum = 0;
+        for( int bit = 0; bit < 32; bit++ ) {
+            long ones = onesBelow(last + 1, bit) - onesBelow(first, bit);
+            if( (high >>> bit & 1) != 0 ) ones = count - ones;
+            sum += (int)ones << bit;
+        }
+        return sum;
+    }
+
+    /**
+     * @return how many of 0 to end - 1 have the bit set
+     */
+    private static long onesBelow( long end, int bit ) {
+        long period = 1L << (bit + 1);
+        long half = 1L << bit;
+        return end / period * half + Math.max(0, end % period - half);
+    }
+}
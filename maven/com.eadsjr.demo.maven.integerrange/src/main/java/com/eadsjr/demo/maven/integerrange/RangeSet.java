@@ -0,0 +1,378 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of long values kept as sorted, disjoint, non-adjacent inclusive ranges
+ * in two parallel primitive arrays. Overlapping or touching ranges are merged
+ * as they are added, so membership is a single binary search and union and
+ * intersection are linear merges of the two arrays.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class RangeSet implements RangeConsumer {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] lows;
+    private long[] highs;
+    private int count;
+
+    public RangeSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of ranges to make room for
+     */
+    public RangeSet( int capacity ) {
+        lows = new long[Math.max(capacity, 1)];
+        highs = new long[lows.length];
+        count = 0;
+    }
+
+    /**
+     * Adds every point of the range, merging it with any ranges it overlaps
+     * or touches.
+     *
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     */
+    public void add( long firstpoint, long secondpoint ) {
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+
+        // first range ending at or after low - 1, which touches on the left
+        int first = low == Long.MIN_VALUE ? 0 : firstHighAtLeast(low - 1);
+        // one past the last range starting at or before high + 1
+        int end = high == Long.MAX_VALUE ? count : firstLowAbove(high + 1);
+
+        if( first < end ) {
+            low = Math.min(low, lows[first]);
+            high = Math.max(high, highs[end - 1]);
+        }
+        splice(first, end, 1);
+        lows[first] = low;
+        highs[first] = high;
+    }
+
+    /**
+     * Adds the range, so parsers can fill the set directly.
+     */
+    @Override
+    public void accept( long lowestValue, long highestValue ) {
+        add(lowestValue, highestValue);
+    }
+
+    public void add( LongRange range ) {
+        add(range.getLowestValue(), range.getHighestValue());
+    }
+
+    public void add( IntRange range ) {
+        add(range.getLowestValue(), range.getHighestValue());
+    }
+
+    /**
+     * @param range a SHORT, INTEGER or LONG range
+     * @throws UnsupportedOperationException for BIGINT ranges
+     */
+    public void add( IntegerRange<?> range ) throws UnsupportedOperationException {
+        add(range.toLongRange());
+    }
+
+    /**
+     * Removes every point of the range, splitting a stored range in two if the
+     * removed range falls inside it.
+     *
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     */
+    public void remove( long firstpoint, long secondpoint ) {
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+
+        int first = firstHighAtLeast(low);
+        int end = firstLowAbove(high);
+        if( first >= end ) return;
+
+        boolean keepLeft = lows[first] < low;
+        boolean keepRight = highs[end - 1] > high;
+        long leftLow = lows[first];
+        long rightHigh = highs[end - 1];
+
+        int remnants = (keepLeft ? 1 : 0) + (keepRight ? 1 : 0);
+        splice(first, end, remnants);
+        int index = first;
+        if( keepLeft ) {
+            lows[index] = leftLow;
+            highs[index] = low - 1;
+            index++;
+        }
+        if( keepRight ) {
+            lows[index] = high + 1;
+            highs[index] = rightHigh;
+        }
+    }
+
+    public void remove( LongRange range ) {
+        remove(range.getLowestValue(), range.getHighestValue());
+    }
+
+    /**
+     * @param value a point to check
+     * @return true if the point is in the set
+     */
+    public boolean contains( long value ) {
+        int index = firstHighAtLeast(value);
+        return index < count && lows[index] <= value;
+    }
+
+    /**
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     * @return true if every point of the range is in the set
+     */
+    public boolean containsRange( long firstpoint, long secondpoint ) {
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+        int index = firstHighAtLeast(high);
+        return index < count && lows[index] <= low;
+    }
+
+    /**
+     * @param firstpoint an endpoint of the range
+     * @param secondpoint an endpoint of the range
+     * @return true if any point of the range is in the set
+     */
+    public boolean overlapsRange( long firstpoint, long secondpoint ) {
+        long low = Math.min(firstpoint, secondpoint);
+        long high = Math.max(firstpoint, secondpoint);
+        int index = firstHighAtLeast(low);
+        return index < count && lows[index] <= high;
+    }
+
+    /**
+     * @return a new set holding every long value not in this one
+     */
+    public RangeSet complement() {
+        RangeSet result = new RangeSet(count + 1);
+        long next = Long.MIN_VALUE;
+        boolean open = true;
+        for( int i = 0; i < count; i++ ) {
+            if( lows[i] > next ) {
+                result.append(next, lows[i] - 1);
+            }
+            if( highs[i] == Long.MAX_VALUE ) {
+                open = false;
+                break;
+            }
+            next = highs[i] + 1;
+        }
+        if( open ) result.append(next, Long.MAX_VALUE);
+        return result;
+    }
+
+    /**
+     * @param other another set
+     * @return a new set holding the points in either set
+     */
+    public RangeSet union( RangeSet other ) {
+        RangeSet result = new RangeSet(count + other.count);
+        int i = 0;
+        int j = 0;
+        while( i < count || j < other.count ) {
+            long low;
+            long high;
+            if( j >= other.count
+                    || (i < count && lows[i] <= other.lows[j]) ) {
+                low = lows[i];
+                high = highs[i++];
+            }
+            else {
+                low = other.lows[j];
+                high = other.highs[j++];
+            }
+            int last = result.count - 1;
+            if( last >= 0 && (result.highs[last] == Long.MAX_VALUE
+                    || low <= result.highs[last] + 1) ) {
+                if( high > result.highs[last] ) result.highs[last] = high;
+            }
+            else {
+                result.append(low, high);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param other another set
+     * @return a new set holding the points in both sets
+     */
+    public RangeSet intersection( RangeSet other ) {
+        RangeSet result = new RangeSet(Math.max(count, other.count));
+        int i = 0;
+        int j = 0;
+        while( i < count && j < other.count ) {
+            long low = Math.max(lows[i], other.lows[j]);
+            long high = Math.min(highs[i], other.highs[j]);
+            if( low <= high ) result.append(low, high);
+            // advance whichever range ends first
+            if( highs[i] < other.highs[j] ) i++;
+            else j++;
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of disjoint ranges in the set
+     */
+    public int rangeCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param index the position of the range, in ascending order
+     * @return the range at that position
+     */
+    public LongRange getRange( int index ) {
+        if( index < 0 || index >= count )
+            throw new IndexOutOfBoundsException("no range at " + index);
+        return new LongRange(lows[index], highs[index]);
+    }
+
+    public long getLowestValue( int index ) {
+        if( index < 0 || index >= count )
+            throw new IndexOutOfBoundsException("no range at " + index);
+        return lows[index];
+    }
+
+    public long getHighestValue( int index ) {
+        if( index < 0 || index >= count )
+            throw new IndexOutOfBoundsException("no range at " + index);
+        return highs[index];
+    }
+
+    /**
+     * @return the ranges in ascending order
+     */
+    public List<LongRange> ranges() {
+        ArrayList<LongRange> ranges = new ArrayList<>(count);
+        for( int i = 0; i < count; i++ ) {
+            ranges.add(new LongRange(lows[i], highs[i]));
+        }
+        return ranges;
+    }
+
+    /**
+     * Appends a range known to sort after, and not touch, every stored range.
+     */
+    private void append( long low, long high ) {
+        splice(count, count, 1);
+        lows[count - 1] = low;
+        highs[count - 1] = high;
+    }
+
+    /**
+     * Replaces the ranges in [from, end) with room for replacements ranges,
+     * shifting the ranges after them.
+     */
+    private void splice( int from, int end, int replacements ) {
+        int newCount = count - (end - from) + replacements;
+        if( newCount > lows.length ) {
+            int capacity = Math.max(newCount, lows.length * 2);
+            lows = Arrays.copyOf(lows, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+        }
+        int tail = count - end;
+        if( tail > 0 && end != from + replacements ) {
+            System.arraycopy(lows, end, lows, from + replacements, tail);
+            System.arraycopy(highs, end, highs, from + replacements, tail);
+        }
+        count = newCount;
+    }
+
+    /**
+     * @return the index of the first range whose high end is at least key, or
+     *         count if there is none
+     */
+    private int firstHighAtLeast( long key ) {
+        int low = 0;
+        int high = count;
+        while( low < high ) {
+            int middle = (low + high) >>> 1;
+            if( highs[middle] < key ) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first range whose low end is above key, or
+     *         count if there is none
+     */
+    private int firstLowAbove( long key ) {
+        int low = 0;
+        int high = count;
+        while( low < high ) {
+            int middle = (low + high) >>> 1;
+            if( lows[middle] <= key ) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        if( !(other instanceof RangeSet) ) return false;
+        RangeSet set = (RangeSet)other;
+        if( set.count != count ) return false;
+        for( int i = 0; i < count; i++ ) {
+            if( lows[i] != set.lows[i] || highs[i] != set.highs[i] ) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 1;
+        for( int i = 0; i < count; i++ ) {
+            hash = hash * 31 + lows[i];
+            hash = hash * 31 + highs[i];
+        }
+        return (int)(hash ^ (hash >>> 32));
+    }
+
+    /**
+     * @return the ranges in inclusive mathematical notation, e.g. "{[1,3],[7,7]}"
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("{");
+        for( int i = 0; i < count; i++ ) {
+            if( i > 0 ) text.append(',');
+            text.append('[').append(lows[i]).append(',').append(highs[i]).append(']');
+        }
+        return text.append('}').toString();
+    }
+}
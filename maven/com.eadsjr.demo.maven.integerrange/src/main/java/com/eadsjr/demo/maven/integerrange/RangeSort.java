@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts ranges held in parallel primitive arrays by their lowest value.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+final class RangeSort {
+    private static final int INSERTION_SORT_SIZE = 32;
+    private static final int PARALLEL_SORT_SIZE = 1 << 13;
+
+    private RangeSort() {
+    }
+
+    /**
+     * Sorts by keys, carrying values and ids along. The sort is stable, and
+     * large inputs are split across the pool.
+     *
+     * @param keys the lowest values, the sort key
+     * @param values the highest values
+     * @param ids the identifiers of the ranges
+     * @param pool the pool to sort large inputs in
+     */
+    static void sort( long[] keys, long[] values, int[] ids, ForkJoinPool pool ) {
+        int size = keys.length;
+        SortTask task = new SortTask(keys, values, ids, new long[size],
+                new long[size], new int[size], 0, size);
+        if( size >= PARALLEL_SORT_SIZE ) pool.invoke(task);
+        else task.compute();
+    }
+
+    /**
+     * A stable merge sort of three parallel arrays keyed on the first. Halves
+     * above PARALLEL_SORT_SIZE are sorted as separate fork-join tasks.
+     */
+    private static final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] keys;
+        private final long[] values;
+        private final int[] ids;
+        private final long[] keyBuffer;
+        private final long[] valueBuffer;
+        private final int[] idBuffer;
+        private final int from;
+        private final int to;
+
+        SortTask( long[] keys, long[] values, int[] ids, long[] keyBuffer,
+                long[] valueBuffer, int[] idBuffer, int from, int to ) {
+            this.keys = keys;
+            this.values = values;
+            this.ids = ids;
+            this.keyBuffer = keyBuffer;
+            this.valueBuffer = valueBuffer;
+            this.idBuffer = idBuffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if( to - from <= INSERTION_SORT_SIZE ) {
+                insertionSort();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            SortTask left = new SortTask(keys, values, ids, keyBuffer,
+                    valueBuffer, idBuffer, from, middle);
+            SortTask right = new SortTask(keys, values, ids, keyBuffer,
+                    valueBuffer, idBuffer, middle, to);
+            if( to - from >= PARALLEL_SORT_SIZE ) {
+                invokeAll(left, right);
+            }
+            else {
+                left.compute();
+                right.compute();
+            }
+            if( keys[middle - 1] <= keys[middle] ) return; // already in order
+            merge(middle);
+        }
+
+        private void merge( int middle ) {
+            int i = from;
+            int j = middle;
+            int k = from;
+            while( i < middle && j < to ) {
+                int source = keys[j] < keys[i] ? j++ : i++;
+                keyBuffer[k] = keys[source];
+                valueBuffer[k] = values[source];
+                idBuffer[k++] = ids[source];
+            }
+            while( i < middle ) {
+                keyBuffer[k] = keys[i];
+                valueBuffer[k] = values[i];
+                idBuffer[k++] = ids[i++];
+            }
+            // whatever remains on the right is already in place
+            System.arraycopy(keyBuffer, from, keys, from, k - from);
+            System.arraycopy(valueBuffer, from, values, from, k - from);
+            System.arraycopy(idBuffer, from, ids, from, k - from);
+        }
+
+        private void insertionSort() {
+            for( int i = from + 1; i < to; i++ ) {
+                long key = keys[i];
+                long value = values[i];
+                int id = ids[i];
+                int j = i - 1;
+                while( j >= from && keys[j] > key ) {
+                    keys[j + 1] = keys[j];
+                    values[j + 1] = values[j];
+                    ids[j + 1] = ids[j];
+                    j--;
+                }
+                keys[j + 1] = key;
+                values[j + 1] = value;
+                ids[j + 1] = id;
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Processes an IntegerRange in a fork-join pool by halving it with
+ * IntegerRange.trySplit() and combining the results of the halves.
+ *
+ * Granularity adapts to the load on the pool. A task keeps splitting only
+ * while its range is larger than the minimum size and its worker has few
+ * forked tasks waiting to be stolen; once idle workers stop taking work the
+ * surplus grows and the remaining ranges are processed whole, rather than
+ * being cut into ever more tasks nobody needs.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ * @param <T> the range type
+ * @param <R> the result type
+ */
+public final class RangeTask<T extends Number & Comparable<T>, R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Tasks stop splitting when their worker has more than this many queued
+     * tasks beyond what other workers are expected to steal.
+     */
+    private static final int SURPLUS_LIMIT = 3;
+
+    /**
+     * The work to do on each piece of the range.
+     *
+     * @param <T> the range type
+     * @param <R> the result type
+     */
+    public interface Worker<T extends Number & Comparable<T>, R> {
+        /**
+         * Processes a piece of the range on the calling thread.
+         *
+         * @param range the piece to process
+         * @return the result for the piece
+         */
+        R process( IntegerRange<T> range );
+
+        /**
+         * Merges the results of two adjacent pieces.
+         *
+         * @param lower the result for the lower piece
+         * @param higher the result for the higher piece
+         * @return the result for both pieces
+         */
+        R combine( R lower, R higher );
+    }
+
+    private final IntegerRange<T> range;
+    private final BigInteger minimumSize;
+    private final Worker<T, R> worker;
+
+    /**
+     * @param range the range to process
+     * @param minimumSize ranges of at most this many points are never split
+     * @param worker the work to do on each piece
+     * @throws IllegalArgumentException if minimumSize is not positive
+     */
+    public RangeTask( IntegerRange<T> range, long minimumSize,
+            Worker<T, R> worker ) throws IllegalArgumentException {
+        this(range, BigInteger.valueOf(minimumSize), worker);
+        if( minimumSize < 1 )
+            throw new IllegalArgumentException("minimum size must be positive");
+    }
+
+    private RangeTask( IntegerRange<T> range, BigInteger minimumSize,
+            Worker<T, R> worker ) {
+        this.range = range;
+        this.minimumSize = minimumSize;
+        this.worker = worker;
+    }
+
+    @Override
+    protected R compute() {
+        if( range.pointCount().compareTo(minimumSize) <= 0
+                || getSurplusQueuedTaskCount() > SURPLUS_LIMIT ) {
+            return worker.process(range);
+        }
+        List<IntegerRange<T>> halves = range.trySplit();
+        RangeTask<T, R> lower = new RangeTask<>(halves.get(0), minimumSize, worker);
+        RangeTask<T, R> higher = new RangeTask<>(halves.get(1), minimumSize, worker);
+        // leave the lower half for thieves and carry on with the higher one
+        lower.fork();
+        R higherResult = higher.compute();
+        return worker.combine(lower.join(), higherResult);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs IntegerRangeBenchmark with the GC profiler, so allocation per
+ * operation is reported beside the timings. Arguments are ordinary JMH
+ * command line options and override the defaults, for example "-p size=16"
+ * or "-wi 1 -i 1" for a quick pass.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class BenchmarkRunner {
+
+    /**
+     * @param args JMH command line options
+     * @throws java.lang.Exception
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if( commandLine.getIncludes().isEmpty() ) {
+            builder.include(IntegerRangeBenchmark.class.getSimpleName());
+        }
+        builder.addProfiler(GCProfiler.class);
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.integerrange;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH measurements of IntegerRange construction and queries. Run them through
+ * BenchmarkRunner, which adds the GC profiler so each result also shows the
+ * bytes allocated per operation.
+ *
+ * The string constructor is measured once for each RangeType, since the type
+ * decides how the numbers are parsed and boxed. The set and point queries are
+ * measured over ranges of several sizes.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntegerRangeBenchmark {
+
+    /**
+     * A range string for each RangeType, chosen by the length of its numbers.
+     */
+    @State(Scope.Thread)
+    public static class Parsing {
+        @Param({ "SHORT", "INTEGER", "LONG", "BIGINT" })
+        public IntegerRange.RangeType rangeType;
+
+        public String range;
+
+        @Setup
+        public void setUp() {
+            switch(rangeType) {
+                case SHORT:
+                    range = "[-999,9999)";
+                    break;
+                case INTEGER:
+                    range = "[-99999999,999999999)";
+                    break;
+                case LONG:
+                    range = "[-999999999999999999,999999999999999999)";
+                    break;
+                default:
+                    range = "[-99999999999999999999999,999999999999999999999999)";
+            }
+        }
+    }
+
+    /**
+     * LONG ranges of the given size, and sets of the points in them.
+     */
+    @State(Scope.Thread)
+    public static class Queries {
+        @Param({ "16", "1024", "65536" })
+        public int size;
+
+        public IntegerRange<Long> range;
+        public IntegerRange<Long> inner;
+        public IntegerRange<Long> outside;
+        public IntegerRange<Long> same;
+        public Set<Long> hashPoints;
+        public SortedSet<Long> treePoints;
+
+        @Setup
+        public void setUp() throws Exception {
+            range = new IntegerRange<Long>(0L, (long)size - 1);
+            inner = new IntegerRange<Long>(1L, (long)size / 2);
+            outside = new IntegerRange<Long>((long)size, (long)size * 2);
+            same = new IntegerRange<Long>(0L, (long)size - 1);
+            hashPoints = new HashSet<>();
+            for( long i = 0; i < size; i++ ) hashPoints.add(i);
+            treePoints = new TreeSet<>(hashPoints);
+        }
+    }
+
+    @Benchmark
+    public IntegerRange<?> parse( Parsing state ) throws Exception {
+        return new IntegerRange<>(state.range);
+    }
+
+    @Benchmark
+    public IntegerRange<?> parseCached( Parsing state ) throws Exception {
+        return IntegerRange.parse(state.range);
+    }
+
+    @Benchmark
+    public IntegerRange<Long> constructFromEndpoints() throws Exception {
+        return new IntegerRange<Long>(7L, -7L);
+    }
+
+    @Benchmark
+    public boolean containsHashSet( Queries state ) {
+        return state.range.Contains(state.hashPoints);
+    }
+
+    @Benchmark
+    public boolean containsSortedSet( Queries state ) {
+        return state.range.Contains(state.treePoints);
+    }
+
+    @Benchmark
+    public boolean containsRange( Queries state ) {
+        return state.range.ContainsRange(state.inner);
+    }
+
+    @Benchmark
+    public boolean overlapsRange( Queries state ) {
+        return state.range.overlapsRange(state.outside);
+    }
+
+    @Benchmark
+    public boolean equalRanges( Queries state ) {
+        return state.range.Equals(state.same);
+    }
+
+    @Benchmark
+    public SortedSet<Long> getAllPoints( Queries state ) throws Exception {
+        return state.range.getAllPoints();
+    }
+
+    /**
+     * Walks every point, which is where boxing shows up for the lazy view.
+     */
+    @Benchmark
+    public void iterateAllPoints( Queries state, Blackhole blackhole ) throws Exception {
+        for( Long point : state.range.getAllPoints() ) blackhole.consume(point);
+    }
+
+    /**
+     * The primitive path through the same points, for comparison.
+     */
+    @Benchmark
+    public long sumPointsPrimitive( Queries state ) {
+        return state.range.toLongRange().stream().sum();
+    }
+}
@@ -17,7 +17,6 @@
 package com.eadsjr.demo.maven.ringbuffer;
 
 import java.io.FileInputStream;
-import java.util.ArrayList;
 import java.util.Scanner;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
@@ -30,7 +29,7 @@ import org.slf4j.Logger;
 public class Main {
     private static Logger logger = LoggerFactory.getLogger(Main.class);
     
-    static RingBuffer buffer = new RingBuffer();
+    static StringRingBuffer buffer = new StringRingBuffer();
     static int lineCount = 0; // for error messages only
 
     /**
@@ -64,7 +63,8 @@ public class Main {
             }
             // List the buffer contents
             else if ( command.startsWith("L")) {
-                System.out.println(buffer.toString());
+                buffer.writeTo(System.out);
+                System.out.println();
                 lineCount++;
                 logger.info("Executed list");
             }
@@ -98,7 +98,7 @@ public class Main {
             throws InvalidInputException {
         try {
             int count = Integer.parseInt(command.substring(1).trim());
-            buffer.remove(count);
+            buffer.discard(count);
         }
         catch(NumberFormatException e) {
             throw new InvalidInputException(
@@ -131,16 +131,15 @@ public class Main {
                             lineCount));                
             }
             
-            ArrayList<String> values = new ArrayList<String>();
+            // lines go straight into the buffer's slab, no staging list
             for(int i = 0; i < count; i++) {
                 if(!reader.hasNextLine()) throw new InvalidInputException(
                     String.format(
                         "Expected a value @ line %d!" +
                                     " Malformed input file.",
                             lineCount));
-                values.add(reader.nextLine());
+                buffer.push(reader.nextLine());
             }
-            buffer.add(values);
             return count + 1;            
         }
         catch(NumberFormatException e) {
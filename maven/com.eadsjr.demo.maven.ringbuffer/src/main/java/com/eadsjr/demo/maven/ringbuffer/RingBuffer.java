@@ -72,7 +72,7 @@ public class RingBuffer {
                             " contains");
         }
         
-        ArrayList values = new ArrayList(mySize);
+        ArrayList values = new ArrayList(quantity);
         for( int i = 0; i < quantity; i++ ) {
             values.add(pop());
         }
@@ -155,22 +155,20 @@ public class RingBuffer {
      */
     @Override
     public String toString() {
-        String values = "";
+        StringBuilder values = new StringBuilder();
         RingBufferLink nextLink = myLastLink;
-        if( nextLink == null ) return values;
+        if( nextLink == null ) return "";
         do {
             Object val = nextLink.getNextElement().getValue();
             if( val != null ) {
-                values = values.concat(val.toString()).concat("\n");
-            }
-            else {
-                values = values.concat("\n");
+                values.append(val.toString());
             }
+            values.append('\n');
             nextLink = nextLink.getNextElement();
         }
         while( !nextLink.getNextElement().equals(myFirstLink) );
         logger.debug("toString result: \n***\n{}***\n", values);
-        return values;
+        return values.toString();
     }
     
     /**
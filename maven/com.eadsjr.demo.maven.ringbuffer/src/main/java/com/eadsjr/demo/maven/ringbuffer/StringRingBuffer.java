@@ -0,0 +1,286 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.ringbuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This is a String specialization of RingBuffer that keeps its values as UTF-8
+ * bytes in one contiguous slab, indexed by offset and length. Values are only
+ * decoded back into Strings when they are popped, and the whole buffer can be
+ * written to a stream without decoding at all.
+ *
+ * It has the same ordering as RingBuffer: the most recently pushed value is the
+ * first one out.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class StringRingBuffer {
+    private static Logger logger = LoggerFactory.getLogger(StringRingBuffer.class);
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int DEFAULT_SLAB_SIZE = 1024;
+
+    /**
+     * Marks a stored null value in the length index.
+     */
+    private static final int NULL_LENGTH = -1;
+
+    private static final byte NEWLINE = (byte)'\n';
+
+    private byte[] mySlab;
+    private int mySlabSize;
+    private int[] myOffsets;
+    private int[] myLengths;
+    private int mySize;
+
+    public StringRingBuffer() {
+        this(DEFAULT_CAPACITY, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * @param capacity The initial number of values the index can hold
+     * @param slabSize The initial number of payload bytes the slab can hold
+     */
+    public StringRingBuffer( int capacity, int slabSize ) {
+        if( capacity < 1 || slabSize < 1 ) {
+            throw new IllegalArgumentException(
+                    "Initial capacity and slab size must be positive");
+        }
+        mySlab = new byte[slabSize];
+        mySlabSize = 0;
+        myOffsets = new int[capacity];
+        myLengths = new int[capacity];
+        mySize = 0;
+        logger.debug("created new string ringbuffer {}", this);
+    }
+
+    /**
+     * Adds some new items to the buffer in iterator order.
+     *
+     * @param values The new items to be added.
+     */
+    public void add( List<String> values ) {
+        for( String val : values ) {
+            push(val);
+        }
+    }
+
+    /**
+     * Removes some elements from the front of the buffer and returns their
+     * values.
+     *
+     * @param quantity The number of elements to return.
+     * @return A List of the elements removed from the buffer.
+     */
+    public List<String> remove( int quantity )
+            throws IndexOutOfBoundsException, IllegalArgumentException {
+        checkRemoval(quantity);
+        ArrayList<String> values = new ArrayList<String>(quantity);
+        for( int i = 0; i < quantity; i++ ) {
+            values.add(pop());
+        }
+        return values;
+    }
+
+    /**
+     * Removes some elements from the front of the buffer without decoding
+     * them.
+     *
+     * @param quantity The number of elements to drop.
+     */
+    public void discard( int quantity )
+            throws IndexOutOfBoundsException, IllegalArgumentException {
+        checkRemoval(quantity);
+        if( quantity == 0 ) return;
+        mySize -= quantity;
+        mySlabSize = myOffsets[mySize];
+        logger.debug("discarded {} values from the string ringbuffer", quantity);
+    }
+
+    private void checkRemoval( int quantity ) {
+        if(quantity < 0) {
+            throw new IllegalArgumentException(
+                    "Attempted to remove negative number of elements");
+        }
+        else if( quantity > mySize ) {
+            throw new IndexOutOfBoundsException(
+                    "Requested removal of more elements then the buffer"+
+                            " contains");
+        }
+    }
+
+    /**
+     * Push a single value on to the front of the buffer. The value is encoded
+     * directly into the slab; unpaired surrogates become '?' as they would
+     * with String.getBytes().
+     *
+     * @param value The value to store.
+     */
+    public void push( String value ) {
+        if( mySize == myOffsets.length ) {
+            int newCapacity = myOffsets.length * 2;
+            myOffsets = Arrays.copyOf(myOffsets, newCapacity);
+            myLengths = Arrays.copyOf(myLengths, newCapacity);
+        }
+        int start = mySlabSize;
+        if( value == null ) {
+            myOffsets[mySize] = start;
+            myLengths[mySize] = NULL_LENGTH;
+            mySize += 1;
+            return;
+        }
+
+        // a char never needs more than three bytes, a surrogate pair takes
+        // two chars for four bytes
+        ensureSlabCapacity(start + value.length() * 3);
+        byte[] slab = mySlab;
+        int pos = start;
+        int length = value.length();
+        for( int i = 0; i < length; i++ ) {
+            char c = value.charAt(i);
+            if( c < 0x80 ) {
+                slab[pos++] = (byte)c;
+            }
+            else if( c < 0x800 ) {
+                slab[pos++] = (byte)(0xC0 | (c >> 6));
+                slab[pos++] = (byte)(0x80 | (c & 0x3F));
+            }
+            else if( Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1)) ) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                slab[pos++] = (byte)(0xF0 | (cp >> 18));
+                slab[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                slab[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                slab[pos++] = (byte)(0x80 | (cp & 0x3F));
+            }
+            else if( Character.isSurrogate(c) ) {
+                slab[pos++] = (byte)'?';
+            }
+            else {
+                slab[pos++] = (byte)(0xE0 | (c >> 12));
+                slab[pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                slab[pos++] = (byte)(0x80 | (c & 0x3F));
+            }
+        }
+        myOffsets[mySize] = start;
+        myLengths[mySize] = pos - start;
+        mySlabSize = pos;
+        mySize += 1;
+    }
+
+    private void ensureSlabCapacity( int required ) {
+        if( required > mySlab.length ) {
+            int newLength = mySlab.length * 2;
+            if( newLength < required ) newLength = required;
+            mySlab = Arrays.copyOf(mySlab, newLength);
+        }
+    }
+
+    /**
+     * Remove the first element in the ring buffer and return it.
+     *
+     * @return the first value in the buffer
+     */
+    public String pop() {
+        if( mySize == 0 ) {
+            throw new IndexOutOfBoundsException(
+                    "There are no more elements in the ring buffer.");
+        }
+        mySize -= 1;
+        int offset = myOffsets[mySize];
+        int length = myLengths[mySize];
+        mySlabSize = offset;
+        if( length == NULL_LENGTH ) return null;
+        return new String(mySlab, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns an ordered ArrayList starting with the first value and passing
+     * through the entire buffer.
+     *
+     * @return ordered list of buffer contents
+     */
+    public ArrayList<String> unwind() {
+        ArrayList<String> values = new ArrayList<String>(mySize);
+        for( int i = mySize - 1; i >= 0; i-- ) {
+            int length = myLengths[i];
+            values.add(length == NULL_LENGTH ? null
+                    : new String(mySlab, myOffsets[i], length,
+                            StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    /**
+     * Writes the raw UTF-8 contents of the buffer, one value per line, in the
+     * same order as toString(). Nothing is decoded on the way out.
+     *
+     * @param out The stream to write to.
+     * @throws IOException
+     */
+    public void writeTo( OutputStream out ) throws IOException {
+        for( int i = mySize - 1; i >= 0; i-- ) {
+            int length = myLengths[i];
+            if( length > 0 ) {
+                out.write(mySlab, myOffsets[i], length);
+            }
+            out.write(NEWLINE);
+        }
+    }
+
+    /**
+     * Returns a string containing the contents of the buffer, one value per
+     * line.
+     *
+     * @return an ordered list of buffer contents as a String
+     */
+    @Override
+    public String toString() {
+        StringBuilder values = new StringBuilder(mySlabSize + mySize);
+        for( int i = mySize - 1; i >= 0; i-- ) {
+            int length = myLengths[i];
+            if( length > 0 ) {
+                values.append(new String(mySlab, myOffsets[i], length,
+                        StandardCharsets.UTF_8));
+            }
+            values.append('\n');
+        }
+        return values.toString();
+    }
+
+    /**
+     * @return The number of elements in the buffer
+     */
+    public int getSize() {
+        return mySize;
+    }
+
+    /**
+     * @return The number of payload bytes currently held in the slab
+     */
+    public int getByteSize() {
+        return mySlabSize;
+    }
+}
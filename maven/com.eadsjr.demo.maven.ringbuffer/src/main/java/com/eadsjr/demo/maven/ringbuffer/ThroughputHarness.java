@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.ringbuffer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+/**
+ * This program runs the ringbuffer driver end to end over a command file, such
+ * as one written by WorkloadGenerator, and reports its throughput, peak heap
+ * and garbage collection cost. Output written by list commands is counted and
+ * discarded, and logging is turned down to warnings so that it does not
+ * dominate the measurement.
+ *
+ * Usage: java ThroughputHarness inputfile [iterations]
+ *
+ * The first iteration is reported as a warm-up; the JIT has usually settled by
+ * the last one.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class ThroughputHarness {
+
+    /**
+     * @param args the command line arguments: input filename, iteration count
+     * @throws java.lang.Exception
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 1) {
+            System.err.println("Error, usage: java ClassName inputfile"
+                    + " [iterations]");
+            System.exit(1);
+        }
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String inputFile = args[0];
+
+        LogManager.getRootLogger().setLevel(Level.WARN);
+
+        long inputBytes = new File(inputFile).length();
+        long commands = countCommands(inputFile);
+        PrintStream report = System.out;
+        report.printf("%s: %d commands, %d bytes%n",
+                inputFile, commands, inputBytes);
+
+        for( int i = 0; i < iterations; i++ ) {
+            Result result = run(inputFile);
+            double seconds = result.elapsedNanos / 1e9;
+            report.printf("%s %d: %.3f s, %.0f commands/s, %.2f MB/s in,"
+                    + " %d bytes out, peak heap %.1f MB, GC %d ms (%d runs)%n",
+                    i == 0 ? "warm-up" : "run", i, seconds,
+                    commands / seconds, inputBytes / seconds / 1e6,
+                    result.outputBytes, result.peakHeapBytes / 1e6,
+                    result.gcMillis, result.gcCount);
+        }
+    }
+
+    /**
+     * Runs the driver once against a fresh buffer.
+     *
+     * @param inputFile the command file
+     * @return the measurements for this run
+     * @throws Exception if the driver rejects the input
+     */
+    static Result run( String inputFile ) throws Exception {
+        Main.buffer = new StringRingBuffer();
+        Main.lineCount = 0;
+        System.gc();
+
+        for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( pool.getType() == MemoryType.HEAP ) pool.resetPeakUsage();
+        }
+        long gcMillisBefore = 0;
+        long gcCountBefore = 0;
+        for( GarbageCollectorMXBean gc
+                : ManagementFactory.getGarbageCollectorMXBeans() ) {
+            gcMillisBefore += Math.max(0, gc.getCollectionTime());
+            gcCountBefore += Math.max(0, gc.getCollectionCount());
+        }
+
+        CountingOutputStream sink = new CountingOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(sink, false));
+        long start = System.nanoTime();
+        try {
+            Main.main(new String[] { inputFile });
+        }
+        finally {
+            System.out.flush();
+            System.setOut(originalOut);
+        }
+
+        Result result = new Result();
+        result.elapsedNanos = System.nanoTime() - start;
+        result.outputBytes = sink.count;
+        for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( pool.getType() == MemoryType.HEAP ) {
+                result.peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        for( GarbageCollectorMXBean gc
+                : ManagementFactory.getGarbageCollectorMXBeans() ) {
+            result.gcMillis += Math.max(0, gc.getCollectionTime());
+            result.gcCount += Math.max(0, gc.getCollectionCount());
+        }
+        result.gcMillis -= gcMillisBefore;
+        result.gcCount -= gcCountBefore;
+        return result;
+    }
+
+    /**
+     * Counts the command lines in a file, skipping the payload lines that
+     * follow each add command.
+     *
+     * @param inputFile the command file
+     * @return the number of commands, including the quit command
+     * @throws IOException
+     */
+    static long countCommands( String inputFile ) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(inputFile), StandardCharsets.UTF_8));
+        try {
+            long commands = 0;
+            String line;
+            while( (line = reader.readLine()) != null ) {
+                commands++;
+                if( line.startsWith("A") ) {
+                    int count = Integer.parseInt(line.substring(1).trim());
+                    for( int i = 0; i < count; i++ ) reader.readLine();
+                }
+                else if( line.startsWith("Q") ) break;
+            }
+            return commands;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * The measurements of a single run.
+     */
+    static class Result {
+        long elapsedNanos;
+        long outputBytes;
+        long peakHeapBytes;
+        long gcMillis;
+        long gcCount;
+    }
+
+    /**
+     * Discards everything written to it, keeping only the byte count.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write( int b ) {
+            count++;
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.ringbuffer;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * This program writes a large, reproducible command file for the ringbuffer
+ * driver. The mix of add, remove and list commands, the batch sizes and the
+ * payload lengths are all configurable, and the same seed always produces the
+ * same file. Remove commands never ask for more values than the buffer holds,
+ * so generated files always run to the final quit command.
+ *
+ * Usage: java WorkloadGenerator outputfile commandcount [--option=value ...]
+ *
+ * Options: seed, add, remove, list (relative command weights), batch (largest
+ * add or remove count), minPayload and maxPayload (line length in chars).
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class WorkloadGenerator {
+
+    private long mySeed = 42;
+    private int myAddWeight = 48;
+    private int myRemoveWeight = 48;
+    private int myListWeight = 4;
+    private int myMaxBatch = 16;
+    private int myMinPayload = 8;
+    private int myMaxPayload = 80;
+
+    /**
+     * @param args the command line arguments: output filename, command count
+     *        and options
+     * @throws java.lang.Exception
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 2) {
+            System.err.println("Error, usage: java ClassName outputfile"
+                    + " commandcount [--seed=N] [--add=N] [--remove=N]"
+                    + " [--list=N] [--batch=N] [--minPayload=N]"
+                    + " [--maxPayload=N]");
+            System.exit(1);
+        }
+
+        WorkloadGenerator generator = new WorkloadGenerator();
+        for(int i = 2; i < args.length; i++) {
+            generator.setOption(args[i]);
+        }
+        long commandCount = Long.parseLong(args[1]);
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(args[0]), StandardCharsets.UTF_8),
+                1 << 16);
+        try {
+            generator.generate(out, commandCount);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Applies a single "--name=value" command line option.
+     *
+     * @param option the option text
+     * @throws IllegalArgumentException if the option is unknown or malformed
+     */
+    public void setOption( String option ) throws IllegalArgumentException {
+        int split = option.indexOf('=');
+        if( !option.startsWith("--") || split < 0 ) {
+            throw new IllegalArgumentException("malformed option " + option);
+        }
+        String name = option.substring(2, split);
+        long value = Long.parseLong(option.substring(split + 1));
+        switch(name) {
+            case "seed":
+                mySeed = value;
+                break;
+            case "add":
+                myAddWeight = checkedInt(name, value, 0);
+                break;
+            case "remove":
+                myRemoveWeight = checkedInt(name, value, 0);
+                break;
+            case "list":
+                myListWeight = checkedInt(name, value, 0);
+                break;
+            case "batch":
+                myMaxBatch = checkedInt(name, value, 1);
+                break;
+            case "minPayload":
+                myMinPayload = checkedInt(name, value, 0);
+                break;
+            case "maxPayload":
+                myMaxPayload = checkedInt(name, value, 0);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown option " + name);
+        }
+    }
+
+    private static int checkedInt( String name, long value, int minimum ) {
+        if( value < minimum || value > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException(
+                    "option " + name + " out of range: " + value);
+        }
+        return (int)value;
+    }
+
+    /**
+     * Writes a command file, including the final quit command.
+     *
+     * @param out where the commands are written
+     * @param commandCount the number of commands before the quit command
+     * @throws IOException
+     */
+    public void generate( Writer out, long commandCount ) throws IOException {
+        int totalWeight = myAddWeight + myRemoveWeight + myListWeight;
+        if( totalWeight <= 0 ) {
+            throw new IllegalArgumentException(
+                    "at least one command weight must be positive");
+        }
+        if( myMinPayload > myMaxPayload ) {
+            throw new IllegalArgumentException(
+                    "minPayload is larger than maxPayload");
+        }
+
+        Random random = new Random(mySeed);
+        char[] line = new char[myMaxPayload];
+        long size = 0;
+        for( long c = 0; c < commandCount; c++ ) {
+            int pick = random.nextInt(totalWeight);
+            if( pick < myAddWeight ) {
+                int count = 1 + random.nextInt(myMaxBatch);
+                out.write("A " + count + "\n");
+                for( int i = 0; i < count; i++ ) {
+                    int length = myMinPayload
+                            + random.nextInt(myMaxPayload - myMinPayload + 1);
+                    // printable ASCII, so every payload stays on one line
+                    for( int j = 0; j < length; j++ ) {
+                        line[j] = (char)(' ' + random.nextInt(95));
+                    }
+                    out.write(line, 0, length);
+                    out.write('\n');
+                }
+                size += count;
+            }
+            else if( pick < myAddWeight + myRemoveWeight ) {
+                // drawn like an add batch so the buffer size does not drift
+                int count = (int)Math.min(size,
+                        1 + random.nextInt(myMaxBatch));
+                out.write("R " + count + "\n");
+                size -= count;
+            }
+            else {
+                out.write("L\n");
+            }
+        }
+        out.write("Q\n");
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.ringbuffer;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.testng.SkipException;
+import static org.testng.Assert.*;
+
+/**
+ * Locks in the allocation behavior of the buffer hot paths. Each test warms a
+ * path up, then measures the bytes the current thread allocates over a steady
+ * state loop and compares them against the budget the path should need.
+ *
+ * Debug logging is switched off for the buffers while these run, since the
+ * log4j configuration logs everything and formatting a log line allocates.
+ *
+ * @author eadsjr
+ */
+public class RingBufferAllocationNGTest {
+
+    private static final int WARMUP_ROUNDS = 20000;
+    private static final int MEASURED_ROUNDS = 100000;
+    private static final String[] VALUES = { "alpha", "beta", "gamma", "delta" };
+
+    private static com.sun.management.ThreadMXBean threadBean;
+    private static long measurementOverhead;
+    private static Level ringBufferLevel;
+    private static Level stringRingBufferLevel;
+
+    public RingBufferAllocationNGTest() {
+    }
+
+    @org.testng.annotations.BeforeClass
+    public static void setUpClass() throws Exception {
+        Logger ringBufferLogger = Logger.getLogger(RingBuffer.class);
+        Logger stringRingBufferLogger = Logger.getLogger(StringRingBuffer.class);
+        ringBufferLevel = ringBufferLogger.getLevel();
+        stringRingBufferLevel = stringRingBufferLogger.getLevel();
+        ringBufferLogger.setLevel(Level.INFO);
+        stringRingBufferLogger.setLevel(Level.INFO);
+
+        if( !(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean) ) return;
+        threadBean = (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+        if( !threadBean.isThreadAllocatedMemorySupported() ) {
+            threadBean = null;
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // reading the counter may itself allocate a little; find the floor
+        measurementOverhead = Long.MAX_VALUE;
+        for( int i = 0; i < 1000; i++ ) {
+            long start = allocatedBytes();
+            measurementOverhead = Math.min(measurementOverhead,
+                    allocatedBytes() - start);
+        }
+    }
+
+    @org.testng.annotations.AfterClass
+    public static void tearDownClass() throws Exception {
+        Logger.getLogger(RingBuffer.class).setLevel(ringBufferLevel);
+        Logger.getLogger(StringRingBuffer.class).setLevel(stringRingBufferLevel);
+    }
+
+    @org.testng.annotations.BeforeMethod
+    public void setUpMethod() throws Exception {
+        if( threadBean == null ) {
+            throw new SkipException(
+                    "per-thread allocation counters are not available");
+        }
+    }
+
+    private static long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+
+    /**
+     * Runs the loop once to warm it up, then returns the bytes allocated by a
+     * second, measured run.
+     */
+    private static long measure( Runnable loop ) {
+        loop.run();
+        long start = allocatedBytes();
+        loop.run();
+        return Math.max(0, allocatedBytes() - start - measurementOverhead);
+    }
+
+    /**
+     * Pushing into and discarding from a grown StringRingBuffer reuses the
+     * slab and index, so it must not allocate at all.
+     */
+    @org.testng.annotations.Test
+    public void testStringRingBufferPushDiscard() {
+        System.out.println("stringRingBufferPushDiscard");
+        final StringRingBuffer instance = new StringRingBuffer();
+        long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                for( int i = 0; i < MEASURED_ROUNDS; i++ ) {
+                    instance.push(VALUES[i & 3]);
+                    instance.push(VALUES[(i + 1) & 3]);
+                    instance.discard(2);
+                }
+            }
+        });
+        assertEquals(allocated, 0, "push/discard allocated");
+    }
+
+    /**
+     * Writing a StringRingBuffer out copies raw bytes only.
+     */
+    @org.testng.annotations.Test
+    public void testStringRingBufferWriteTo() {
+        System.out.println("stringRingBufferWriteTo");
+        final StringRingBuffer instance = new StringRingBuffer();
+        for( int i = 0; i < 1000; i++ ) {
+            instance.push(VALUES[i & 3]);
+        }
+        final OutputStream sink = new OutputStream() {
+            @Override
+            public void write( int b ) {
+            }
+
+            @Override
+            public void write( byte[] b, int off, int len ) {
+            }
+        };
+        long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for( int i = 0; i < WARMUP_ROUNDS / 100; i++ ) {
+                        instance.writeTo(sink);
+                    }
+                }
+                catch( java.io.IOException e ) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        assertEquals(allocated, 0, "writeTo allocated");
+    }
+
+    /**
+     * Popping from a RingBuffer only unlinks nodes.
+     */
+    @org.testng.annotations.Test
+    public void testRingBufferPop() {
+        System.out.println("ringBufferPop");
+        final RingBuffer instance = new RingBuffer();
+        // two rounds, one to warm up and one to measure
+        for( int i = 0; i < 2 * MEASURED_ROUNDS; i++ ) {
+            instance.push(VALUES[i & 3]);
+        }
+        long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                for( int i = 0; i < MEASURED_ROUNDS; i++ ) {
+                    instance.pop();
+                }
+            }
+        });
+        assertEquals(allocated, 0, "pop allocated");
+    }
+
+    /**
+     * Pushing into a RingBuffer allocates its link and nothing else.
+     */
+    @org.testng.annotations.Test
+    public void testRingBufferPushPop() {
+        System.out.println("ringBufferPushPop");
+        final RingBuffer instance = new RingBuffer();
+        instance.push(VALUES[0]);
+        long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                for( int i = 0; i < MEASURED_ROUNDS; i++ ) {
+                    instance.push(VALUES[i & 3]);
+                    instance.pop();
+                }
+            }
+        });
+        // a link is a header plus two references, 32 bytes at most
+        assertTrue(allocated <= 32L * MEASURED_ROUNDS,
+                "push allocated " + allocated + " bytes");
+    }
+
+    /**
+     * Removing a few values from a large RingBuffer allocates for the values
+     * returned, not for the whole buffer.
+     */
+    @org.testng.annotations.Test
+    public void testRingBufferRemoveFew() {
+        System.out.println("ringBufferRemoveFew");
+        final RingBuffer instance = new RingBuffer();
+        for( int i = 0; i < MEASURED_ROUNDS; i++ ) {
+            instance.push(VALUES[i & 3]);
+        }
+        long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                for( int i = 0; i < 100; i++ ) {
+                    instance.remove(1);
+                }
+            }
+        });
+        assertTrue(allocated <= 100 * 256,
+                "remove(1) allocated " + allocated + " bytes");
+    }
+
+    /**
+     * Listing a RingBuffer grows a single builder, so the garbage stays
+     * proportional to the output rather than its square.
+     */
+    @org.testng.annotations.Test
+    public void testRingBufferToString() {
+        System.out.println("ringBufferToString");
+        final RingBuffer instance = new RingBuffer();
+        for( int i = 0; i < 10000; i++ ) {
+            instance.push(VALUES[i & 3]);
+        }
+        final int length = instance.toString().length();
+        long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                instance.toString();
+            }
+        });
+        // builder growth and the final copy, in UTF-16 at worst
+        assertTrue(allocated <= 8L * length + 1024,
+                "toString allocated " + allocated + " bytes for "
+                        + length + " chars");
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.ringbuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.*;
+
+/**
+ *
+ * @author eadsjr
+ */
+public class StringRingBufferNGTest {
+
+    public StringRingBufferNGTest() {
+    }
+
+    /**
+     * Test of add method, of class StringRingBuffer.
+     */
+    @org.testng.annotations.Test
+    public void testAdd() {
+        System.out.println("add");
+        List<String> values = Arrays.asList("a,b,c".split(","));
+        StringRingBuffer instance = new StringRingBuffer();
+        instance.add(values);
+        List<String> x = instance.unwind();
+        assertEquals(x, Arrays.asList("c", "b", "a"));
+    }
+
+    /**
+     * Test of remove method, of class StringRingBuffer.
+     */
+    @org.testng.annotations.Test
+    public void testRemove() {
+        System.out.println("remove");
+        StringRingBuffer instance = new StringRingBuffer();
+        instance.add(Arrays.asList("xyz", "abc"));
+        assertEquals(instance.remove(1), Arrays.asList("abc"));
+        assertEquals(instance.remove(0), Arrays.asList());
+        assertEquals(instance.remove(1), Arrays.asList("xyz"));
+
+        boolean isHandled = false;
+        try {
+            instance.remove(-1);
+        }
+        catch( IllegalArgumentException e ) {
+            isHandled = true;
+        }
+        assertTrue(isHandled);
+
+        isHandled = false;
+        try {
+            instance.remove(1);
+        }
+        catch( IndexOutOfBoundsException e ) {
+            isHandled = true;
+        }
+        assertTrue(isHandled);
+    }
+
+    /**
+     * Test of discard method, of class StringRingBuffer.
+     */
+    @org.testng.annotations.Test
+    public void testDiscard() {
+        System.out.println("discard");
+        StringRingBuffer instance = new StringRingBuffer();
+        instance.add(Arrays.asList("one", "two", "three"));
+        instance.discard(2);
+        assertEquals(instance.getSize(), 1);
+        assertEquals(instance.getByteSize(), 3);
+        instance.push("four");
+        assertEquals(instance.unwind(), Arrays.asList("four", "one"));
+    }
+
+    /**
+     * Test of push and pop with values that are not plain ASCII, and with
+     * enough values to grow the slab and index.
+     */
+    @org.testng.annotations.Test
+    public void testPushPopEncoding() {
+        System.out.println("pushPopEncoding");
+        StringRingBuffer instance = new StringRingBuffer(1, 1);
+        String[] values = { "", "plain", "café", "€ 5",
+            "😀 smile", null, "bad \ud800 surrogate" };
+        for( String value : values ) {
+            instance.push(value);
+        }
+        assertEquals(instance.getSize(), values.length);
+        assertEquals(instance.pop(), "bad ? surrogate");
+        for( int i = values.length - 2; i >= 0; i-- ) {
+            assertEquals(instance.pop(), values[i]);
+        }
+        assertEquals(instance.getSize(), 0);
+        assertEquals(instance.getByteSize(), 0);
+    }
+
+    /**
+     * Test of writeTo method, of class StringRingBuffer.
+     */
+    @org.testng.annotations.Test
+    public void testWriteTo() throws Exception {
+        System.out.println("writeTo");
+        ArrayList<String> values = new ArrayList<String>(
+                Arrays.asList("hello,maybe?,I dünno".split(",")));
+        StringRingBuffer instance = new StringRingBuffer();
+        instance.add(values);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        instance.writeTo(out);
+        assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8),
+                "I dünno\nmaybe?\nhello\n");
+        assertEquals(instance.getSize(), 3);
+    }
+
+    /**
+     * Test of toString method, of class StringRingBuffer.
+     */
+    @org.testng.annotations.Test
+    public void testToString() {
+        System.out.println("toString");
+        StringRingBuffer instance = new StringRingBuffer();
+        assertEquals(instance.toString(), "");
+        instance.add(Arrays.asList("hello,maybe?,I dunno".split(",")));
+        assertEquals(instance.toString(), "I dunno\nmaybe?\nhello\n");
+    }
+}
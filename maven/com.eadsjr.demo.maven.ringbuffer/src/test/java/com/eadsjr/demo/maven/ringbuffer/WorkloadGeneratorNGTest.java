@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.eadsjr.demo.maven.ringbuffer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import static org.testng.Assert.*;
+
+/**
+ *
+ * @author eadsjr
+ */
+public class WorkloadGeneratorNGTest {
+
+    public WorkloadGeneratorNGTest() {
+    }
+
+    /**
+     * The same seed and options must always produce the same file.
+     */
+    @org.testng.annotations.Test
+    public void testGenerateIsReproducible() throws Exception {
+        System.out.println("generateIsReproducible");
+        WorkloadGenerator instance = new WorkloadGenerator();
+        instance.setOption("--seed=7");
+        StringWriter first = new StringWriter();
+        instance.generate(first, 100);
+        StringWriter second = new StringWriter();
+        instance.generate(second, 100);
+        assertEquals(first.toString(), second.toString());
+        assertTrue(first.toString().endsWith("Q\n"));
+
+        instance.setOption("--seed=8");
+        StringWriter third = new StringWriter();
+        instance.generate(third, 100);
+        assertNotEquals(third.toString(), first.toString());
+    }
+
+    /**
+     * Test of setOption method, of class WorkloadGenerator.
+     */
+    @org.testng.annotations.Test
+    public void testSetOption() {
+        System.out.println("setOption");
+        WorkloadGenerator instance = new WorkloadGenerator();
+        instance.setOption("--batch=3");
+        String[] bad = { "batch=3", "--batch", "--bogus=1", "--batch=0" };
+        for( String option : bad ) {
+            boolean isHandled = false;
+            try {
+                instance.setOption(option);
+            }
+            catch( IllegalArgumentException e ) {
+                isHandled = true;
+            }
+            assertTrue(isHandled, option);
+        }
+    }
+
+    /**
+     * A generated file must run through the driver and be counted by the
+     * harness.
+     */
+    @org.testng.annotations.Test
+    public void testGeneratedFileRunsInHarness() throws Exception {
+        System.out.println("generatedFileRunsInHarness");
+        File file = File.createTempFile("workload", ".txt");
+        file.deleteOnExit();
+        WorkloadGenerator instance = new WorkloadGenerator();
+        instance.setOption("--remove=60");
+        instance.setOption("--list=20");
+        Writer out = new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            instance.generate(out, 50);
+        }
+        finally {
+            out.close();
+        }
+
+        assertEquals(ThroughputHarness.countCommands(file.getPath()), 51);
+        ThroughputHarness.Result result =
+                ThroughputHarness.run(file.getPath());
+        assertTrue(result.elapsedNanos > 0);
+        assertTrue(result.peakHeapBytes > 0);
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reverses the words of every line of a text, treating each line as its own
+ * record, on a pool of worker threads.
+ *
+ * A reader thread collects lines into batches and hands each batch to the
+ * pool. A worker reverses the whole batch into one String with its own
+ * WordReverser and StringBuilder, both kept for the life of the thread, and
+ * files the result in a reorder buffer under the batch's sequence number. The
+ * calling thread takes the batches back out of the reorder buffer strictly in
+ * sequence and writes them, so the output is in input order whatever order
+ * the workers finish in. A semaphore bounds the number of batches between
+ * being read and being written, which bounds memory too.
+ *
+ * Lines are written with a '\n' after each, whatever ended them in the input.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class LineWordReverser {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * Marks the end of the input in the reorder buffer.
+     */
+    private static final String END = new String("end of input");
+
+    private final int threads;
+    private final int batchSize;
+    private final int batchesInFlight;
+
+    /**
+     * @param threads the number of worker threads
+     */
+    public LineWordReverser(int threads) {
+        this(threads, DEFAULT_BATCH_SIZE, threads * 4);
+    }
+
+    /**
+     * @param threads the number of worker threads
+     * @param batchSize the number of lines handed to a worker at a time
+     * @param batchesInFlight the most batches read but not yet written
+     */
+    public LineWordReverser(int threads, int batchSize, int batchesInFlight) {
+        if (threads < 1 || batchSize < 1 || batchesInFlight < 1) {
+            throw new IllegalArgumentException(
+                    "threads, batch size and batches in flight must be positive");
+        }
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.batchesInFlight = batchesInFlight;
+    }
+
+    /**
+     * Copies every line from the reader to the writer with each word reversed.
+     * The writer is flushed but neither is closed.
+     *
+     * @param in the lines to reverse
+     * @param out where the reversed lines are written, in input order
+     * @return the counts and timings of the run
+     * @throws IOException if reading or writing fails
+     * @throws IllegalStateException if reading or a worker fails with an
+     *         unchecked exception, which is its cause
+     */
+    public Statistics reverse(final BufferedReader in, Writer out)
+            throws IOException {
+        final long started = System.nanoTime();
+        final ThreadPoolExecutor workers = new ThreadPoolExecutor(threads,
+                threads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), DAEMONS);
+        final ReorderBuffer reorder = new ReorderBuffer();
+        final Semaphore inFlight = new Semaphore(batchesInFlight);
+        final Statistics statistics = new Statistics();
+        final IOException[] readFailure = new IOException[1];
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long sequence = 0;
+                try {
+                    String[] batch = new String[batchSize];
+                    int count = 0;
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        batch[count++] = line;
+                        statistics.lines++;
+                        statistics.chars += line.length();
+                        if (count == batchSize) {
+                            submit(sequence++, batch, count);
+                            batch = new String[batchSize];
+                            count = 0;
+                        }
+                    }
+                    if (count > 0) {
+                        submit(sequence++, batch, count);
+                    }
+                } catch (IOException e) {
+                    readFailure[0] = e;
+                } catch (InterruptedException e) {
+                    // the writer has given up
+                } catch (RuntimeException | Error e) {
+                    // the writer rethrows it; no END, or the writer would
+                    // stop quietly at this point
+                    reorder.fail(e);
+                    return;
+                }
+                reorder.put(sequence, END);
+            }
+
+            private void submit(final long sequence, final String[] batch,
+                    final int count) throws InterruptedException {
+                inFlight.acquire();
+                statistics.batches++;
+                statistics.workQueued.sample(workers.getQueue().size());
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            reorder.put(sequence, reverse(batch, count));
+                        } catch (RuntimeException | Error e) {
+                            // the writer rethrows it
+                            reorder.fail(e);
+                        }
+                    }
+                });
+            }
+        }, "line-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            String text;
+            while ((text = reorder.take()) != END) {
+                out.write(text);
+                inFlight.release();
+            }
+            out.flush();
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing lines");
+        } finally {
+            reader.interrupt();
+            workers.shutdownNow();
+        }
+        if (readFailure[0] != null) {
+            throw readFailure[0];
+        }
+        statistics.reordered = reorder.depth;
+        statistics.nanos = System.nanoTime() - started;
+        return statistics;
+    }
+
+    /**
+     * The reverser and output buffer of each worker thread.
+     */
+    private static final ThreadLocal<WordReverser> REVERSERS
+            = new ThreadLocal<WordReverser>() {
+                @Override
+                protected WordReverser initialValue() {
+                    return new WordReverser();
+                }
+            };
+
+    private static final ThreadLocal<StringBuilder> BUILDERS
+            = new ThreadLocal<StringBuilder>() {
+                @Override
+                protected StringBuilder initialValue() {
+                    return new StringBuilder(1 << 16);
+                }
+            };
+
+    private static String reverse(String[] batch, int count) {
+        WordReverser reverser = REVERSERS.get();
+        StringBuilder text = BUILDERS.get();
+        text.setLength(0);
+        for (int i = 0; i < count; i++) {
+            reverser.reverseWords(batch[i], text);
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private static final ThreadFactory DAEMONS = new ThreadFactory() {
+        private int created;
+
+        @Override
+        public synchronized Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "line-worker-" + created++);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    /**
+     * Finished batches waiting for the ones before them to be written.
+     */
+    private static final class ReorderBuffer {
+        private final Map<Long, String> finished = new HashMap<>();
+        private final Depth depth = new Depth();
+        private long next;
+        private Throwable failure;
+
+        synchronized void put(long sequence, String text) {
+            finished.put(sequence, text);
+            depth.sample(finished.size());
+            if (sequence == next) {
+                notifyAll();
+            }
+        }
+
+        synchronized void fail(Throwable cause) {
+            failure = cause;
+            notifyAll();
+        }
+
+        synchronized String take() throws InterruptedException {
+            String text;
+            while ((text = finished.remove(next)) == null) {
+                if (failure != null) {
+                    throw new IllegalStateException("a worker failed", failure);
+                }
+                wait();
+            }
+            next++;
+            return text;
+        }
+    }
+
+    /**
+     * The largest and average of a series of queue sizes.
+     */
+    public static final class Depth {
+        private int max;
+        private long total;
+        private long samples;
+
+        void sample(int size) {
+            max = Math.max(max, size);
+            total += size;
+            samples++;
+        }
+
+        /**
+         * @return the largest size seen
+         */
+        public int getMax() {
+            return max;
+        }
+
+        /**
+         * @return the average size seen, or 0 if there were none
+         */
+        public double getMean() {
+            return samples == 0 ? 0 : (double) total / samples;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("max %d, mean %.1f", max, getMean());
+        }
+    }
+
+    /**
+     * What one run of the pipeline did and how long it took.
+     */
+    public static final class Statistics {
+        private long lines;
+        private long chars;
+        private long batches;
+        private long nanos;
+        private final Depth workQueued = new Depth();
+        private Depth reordered;
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getChars() {
+            return chars;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the batches waiting for a worker, sampled at each hand-off
+         */
+        public Depth getWorkQueued() {
+            return workQueued;
+        }
+
+        /**
+         * @return the finished batches waiting to be written, sampled as each
+         *         one finished
+         */
+        public Depth getReordered() {
+            return reordered;
+        }
+
+        public double getLinesPerSecond() {
+            return nanos == 0 ? 0 : lines * 1e9 / nanos;
+        }
+
+        public double getCharsPerSecond() {
+            return nanos == 0 ? 0 : chars * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines, %d chars in %d batches, %.3f s%n"
+                    + "%.0f lines/s, %.0f chars/s%n"
+                    + "work queue: %s%n"
+                    + "reorder buffer: %s",
+                    lines, chars, batches, nanos / 1e9,
+                    getLinesPerSecond(), getCharsPerSecond(),
+                    workQueued, reordered);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reverses the words of ASCII or UTF-8 files through memory mappings, so the
+ * bytes are never decoded into Strings or copied onto the Java heap.
+ *
+ * The file is mapped one window at a time. A window ends just after its last
+ * non-letter, and the next one starts there, so no word is split between
+ * two mappings; a window that is all one word is doubled until the word
+ * fits. The words in each window are reversed in place with
+ * WordReverser.reverseWords(ByteBuffer, int, int).
+ *
+ * Bytes are classified as ASCII, and no byte of a multi-byte UTF-8 sequence
+ * is a letter, so other characters break words and are left intact.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class MappedWordReverser {
+
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final int windowSize;
+
+    public MappedWordReverser() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize the number of bytes to map at a time
+     */
+    public MappedWordReverser(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Reverses the words of a file, writing over it.
+     *
+     * @param file the file to rewrite
+     * @return the number of bytes processed
+     * @throws IOException if the file cannot be mapped
+     */
+    public long reverseInPlace(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return reverse(channel, MapMode.READ_WRITE, null);
+        }
+    }
+
+    /**
+     * Writes the input file to the output file with each word reversed. The
+     * bytes are copied by the operating system and then reversed in the
+     * output's mapping. If both name the same file it is rewritten in place.
+     *
+     * @param input the file to read
+     * @param output the file to create or replace
+     * @return the number of bytes processed
+     * @throws IOException if either file cannot be opened or mapped
+     */
+    public long reverse(Path input, Path output) throws IOException {
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            return reverseInPlace(input);
+        }
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(output,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long copied = 0;
+            while (copied < size) {
+                copied += in.transferTo(copied, size - copied, out);
+            }
+            return reverse(out, MapMode.READ_WRITE, null);
+        }
+    }
+
+    /**
+     * Writes the input file to a channel with each word reversed. The words
+     * are reversed in a private copy-on-write mapping, so the file itself is
+     * left unchanged, though it must be writable for the mapping to be made.
+     * The channel is not closed.
+     *
+     * @param input the file to read
+     * @param output where the result is written
+     * @return the number of bytes processed
+     * @throws IOException if the file cannot be mapped or the channel fails
+     */
+    public long reverse(Path input, WritableByteChannel output)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(input,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return reverse(in, MapMode.PRIVATE, output);
+        }
+    }
+
+    /**
+     * Reverses the whole of the channel's file window by window, writing each
+     * finished window to out if it is not null.
+     */
+    private long reverse(FileChannel channel, MapMode mode,
+            WritableByteChannel out) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            long remaining = size - position;
+            int length = (int) Math.min(windowSize, remaining);
+            MappedByteBuffer window;
+            int cut;
+            while (true) {
+                window = channel.map(mode, position, length);
+                cut = length;
+                if (length < remaining) {
+                    // leave a word that may run past the window for the next
+                    while (cut > 0 && WordReverser.isLetter(window.get(cut - 1))) {
+                        cut--;
+                    }
+                }
+                if (cut > 0) {
+                    break;
+                }
+                if (length == Integer.MAX_VALUE) {
+                    throw new IOException("word too long to map at " + position);
+                }
+                length = (int) Math.min(Math.min(Integer.MAX_VALUE, length * 2L),
+                        remaining);
+            }
+            WordReverser.reverseWords(window, 0, cut);
+            if (out != null) {
+                window.position(0).limit(cut);
+                while (window.hasRemaining()) {
+                    out.write(window);
+                }
+            }
+            position += cut;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reverses the words of large texts on every core of a fork-join pool.
+ *
+ * Words never span two segments, so the text is halved recursively, each cut
+ * moved forward from the midpoint to the next non-letter, until the pieces
+ * are small enough to do on one thread. Each piece is then copied into the
+ * shared output array, which is allocated once up front, and reversed there
+ * in place. The in-place forms skip the copy.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class ParallelWordReverser {
+
+    /**
+     * Pieces smaller than this are not worth a task of their own.
+     */
+    static final int MIN_SEGMENT = 1 << 16;
+
+    private ParallelWordReverser() {
+    }
+
+    /**
+     * @param input the text whose words will be reversed
+     * @param pool the pool to work in
+     * @return the text with each word reversed
+     */
+    public static String reverseWords(String input, ForkJoinPool pool) {
+        char[] chars = input.toCharArray();
+        reverseWordsInPlace(chars, pool);
+        return new String(chars);
+    }
+
+    /**
+     * @param input the text whose words will be reversed, left unchanged
+     * @param pool the pool to work in
+     * @return a new array holding the text with each word reversed
+     */
+    public static char[] reverseWords(char[] input, ForkJoinPool pool) {
+        char[] output = new char[input.length];
+        pool.invoke(new Segment(input, output, null, 0, input.length));
+        return output;
+    }
+
+    /**
+     * @param chars the text whose words will be reversed in place
+     * @param pool the pool to work in
+     */
+    public static void reverseWordsInPlace(char[] chars, ForkJoinPool pool) {
+        pool.invoke(new Segment(chars, chars, null, 0, chars.length));
+    }
+
+    /**
+     * Reverses the words of ASCII or UTF-8 text in place.
+     *
+     * @param bytes the text whose words will be reversed in place
+     * @param pool the pool to work in
+     */
+    public static void reverseWordsInPlace(byte[] bytes, ForkJoinPool pool) {
+        pool.invoke(new Segment(null, null, bytes, 0, bytes.length));
+    }
+
+    /**
+     * One piece of the text, which starts at a non-letter or at the start of
+     * the text. Either the char arrays or the byte array is set.
+     */
+    private static final class Segment extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] input;
+        private final char[] output;
+        private final byte[] bytes;
+        private final int from;
+        private final int to;
+
+        Segment(char[] input, char[] output, byte[] bytes, int from, int to) {
+            this.input = input;
+            this.output = output;
+            this.bytes = bytes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from >= 2 * MIN_SEGMENT) {
+                int cut = cut();
+                if (cut > from && cut < to) {
+                    invokeAll(new Segment(input, output, bytes, from, cut),
+                            new Segment(input, output, bytes, cut, to));
+                    return;
+                }
+            }
+            if (bytes != null) {
+                WordReverser.reverseWords(bytes, from, to);
+            } else {
+                if (input != output) {
+                    System.arraycopy(input, from, output, from, to - from);
+                }
+                WordReverser.reverseWords(output, from, to);
+            }
+        }
+
+        /**
+         * @return the first non-letter at or after the midpoint, or the last
+         *         one before it if the rest is one word, or from if none
+         */
+        private int cut() {
+            int middle = (from + to) >>> 1;
+            for (int i = middle; i < to; i++) {
+                if (!isLetter(i)) {
+                    return i;
+                }
+            }
+            for (int i = middle - 1; i > from; i--) {
+                if (!isLetter(i)) {
+                    return i;
+                }
+            }
+            return from;
+        }
+
+        private boolean isLetter(int index) {
+            return bytes != null
+                    ? WordReverser.isLetter(bytes[index])
+                    : WordReverser.isLetter(input[index]);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reverses the words of text like WordReverser, remembering the reversed
+ * form of each word it has seen recently and copying it straight into the
+ * text when the word comes round again.
+ *
+ * Entries are spread over independently locked stripes, each a LinkedHashMap
+ * in access order that evicts its least recently used entry once full, so
+ * the cache is bounded and threads looking up different words rarely wait on
+ * one another. A word is looked up by its place in the text: each stripe has
+ * one reusable key that is pointed at the chars while the stripe is locked,
+ * so a hit allocates nothing. Only a miss copies the word, to keep it.
+ *
+ * Words of one letter, and words longer than the limit given, are reversed
+ * directly and not counted, since they gain nothing from the cache. Hits and
+ * misses are counted with LongAdders, so the hit rate can be weighed against
+ * plain WordReverser on the same text. Swapping the ends of a short word is
+ * itself cheap, and in the charsCached benchmark even an all-hit run takes
+ * several times as long as WordReverser, so measure before choosing this.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class ReversedWordCache {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_WORD_LENGTH = 24;
+
+    private static final int STRIPE_COUNT = 16;
+    // how far a remixed hash is shifted to leave a stripe index
+    private static final int STRIPE_SHIFT
+            = Integer.numberOfLeadingZeros(STRIPE_COUNT - 1);
+
+    private final Stripe[] stripes;
+    private final int capacity;
+    private final int maxWordLength;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ReversedWordCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_WORD_LENGTH);
+    }
+
+    /**
+     * @param capacity the most words to hold, spread over the stripes
+     * @param maxWordLength the longest word to cache
+     */
+    public ReversedWordCache(int capacity, int maxWordLength) {
+        if (capacity < 1 || maxWordLength < 1) {
+            throw new IllegalArgumentException(
+                    "capacity and word length must be positive");
+        }
+        int perStripe = Math.max(1, (capacity + STRIPE_COUNT - 1) / STRIPE_COUNT);
+        this.capacity = perStripe * STRIPE_COUNT;
+        this.maxWordLength = maxWordLength;
+        stripes = new Stripe[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * @param input the text whose words will be reversed
+     * @return the text with each word reversed
+     */
+    public String reverseWords(String input) {
+        char[] chars = input.toCharArray();
+        reverseWords(chars, 0, chars.length);
+        return new String(chars);
+    }
+
+    /**
+     * Reverses each word between from and to, in place. A word running into
+     * either end of the span is treated as ending there.
+     *
+     * @param chars the text
+     * @param from the index of the first character to process
+     * @param to the index after the last character to process
+     */
+    public void reverseWords(char[] chars, int from, int to) {
+        int i = from;
+        while (i < to) {
+            while (i < to && !WordReverser.isLetter(chars[i])) {
+                i++;
+            }
+            int start = i;
+            int hash = 0;
+            while (i < to && WordReverser.isLetter(chars[i])) {
+                hash = 31 * hash + chars[i++];
+            }
+            int length = i - start;
+            if (length < 2 || length > maxWordLength) {
+                WordReverser.reverse(chars, start, i - 1);
+            } else {
+                reverseWord(chars, start, length, hash);
+            }
+        }
+    }
+
+    private void reverseWord(char[] chars, int start, int length, int hash) {
+        // the high bits, as the stripe's map indexes on the low ones
+        Stripe stripe = stripes[(hash * 0x9E3779B9) >>> STRIPE_SHIFT];
+        char[] reversed;
+        synchronized (stripe) {
+            reversed = stripe.get(stripe.probe.set(chars, start, length, hash));
+            // don't keep the text alive
+            stripe.probe.set(null, 0, 0, 0);
+        }
+        if (reversed != null) {
+            hits.increment();
+            System.arraycopy(reversed, 0, chars, start, length);
+            return;
+        }
+        misses.increment();
+        Word word = new Word().set(
+                Arrays.copyOfRange(chars, start, start + length), 0, length, hash);
+        WordReverser.reverse(chars, start, start + length - 1);
+        reversed = Arrays.copyOfRange(chars, start, start + length);
+        synchronized (stripe) {
+            if (!stripe.containsKey(word)) {
+                stripe.put(word, reversed);
+            }
+        }
+    }
+
+    /**
+     * @return the number of words found in the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of words that had to be reversed and cached
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups that were hits, or 0 before any lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return the most words the cache holds
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of words now cached
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Empties the cache and resets the statistics.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses, hit rate %.1f%%, %d of %d cached",
+                getHitCount(), getMissCount(), getHitRate() * 100, size(),
+                capacity);
+    }
+
+    /**
+     * A word as a range of a char array. Cached words own their array; a
+     * stripe's probe points into the text being reversed.
+     */
+    private static final class Word {
+        private char[] chars;
+        private int from;
+        private int length;
+        private int hash;
+
+        Word set(char[] chars, int from, int length, int hash) {
+            this.chars = chars;
+            this.from = from;
+            this.length = length;
+            this.hash = hash;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Word)) {
+                return false;
+            }
+            Word word = (Word) other;
+            if (hash != word.hash || length != word.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (chars[from + i] != word.chars[word.from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<Word, char[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int limit;
+        // only used while the stripe is locked
+        private final Word probe = new Word();
+
+        Stripe(int limit) {
+            super(16, 0.75f, true);
+            this.limit = limit;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Word, char[]> eldest) {
+            return size() > limit;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reverses the words of text of any length as it streams from a Reader to a
+ * Writer, or from one byte channel to another.
+ *
+ * The input is read in fixed-size chunks into a single buffer. Everything up
+ * to the last non-letter in the buffer is reversed in place and written out;
+ * a word still running at the end of the chunk is moved to the front of the
+ * buffer and finished with the next read. Memory use is therefore one chunk,
+ * growing only if a single word is longer than that.
+ *
+ * The byte channel form treats the bytes as ASCII, which also suits UTF-8
+ * since no byte of a multi-byte sequence is a letter. Channels must be in
+ * blocking mode.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class StreamWordReverser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final int chunkSize;
+
+    public StreamWordReverser() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize the number of characters or bytes to read at a time
+     */
+    public StreamWordReverser(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Copies the text from the reader to the writer with each word reversed.
+     * The writer is flushed but neither stream is closed.
+     *
+     * @param in the text to reverse
+     * @param out where the result is written
+     * @return the number of characters copied
+     * @throws IOException if reading or writing fails
+     */
+    public long reverse(Reader in, Writer out) throws IOException {
+        char[] buffer = new char[chunkSize];
+        int carried = 0;
+        long total = 0;
+        while (true) {
+            if (carried == buffer.length) {
+                // one word has filled the whole buffer
+                buffer = Arrays.copyOf(buffer, grow(buffer.length));
+            }
+            int read = in.read(buffer, carried, buffer.length - carried);
+            if (read < 0) {
+                break;
+            }
+            int end = carried + read;
+
+            // hold back a word that may continue in the next chunk
+            int cut = end;
+            while (cut > 0 && WordReverser.isLetter(buffer[cut - 1])) {
+                cut--;
+            }
+            WordReverser.reverseWords(buffer, 0, cut);
+            out.write(buffer, 0, cut);
+            total += cut;
+
+            carried = end - cut;
+            System.arraycopy(buffer, cut, buffer, 0, carried);
+        }
+        WordReverser.reverseWords(buffer, 0, carried);
+        out.write(buffer, 0, carried);
+        out.flush();
+        return total + carried;
+    }
+
+    /**
+     * Copies the bytes from one channel to the other with each word reversed.
+     * Neither channel is closed.
+     *
+     * @param in the text to reverse, as ASCII or UTF-8
+     * @param out where the result is written
+     * @return the number of bytes copied
+     * @throws IOException if reading or writing fails
+     */
+    public long reverse(ReadableByteChannel in, WritableByteChannel out)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        int carried = 0;
+        long total = 0;
+        while (true) {
+            if (carried == buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(grow(buffer.capacity()));
+                larger.put(buffer.array(), 0, carried);
+                buffer = larger;
+            }
+            buffer.limit(buffer.capacity()).position(carried);
+            if (in.read(buffer) < 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            int end = buffer.position();
+
+            int cut = end;
+            while (cut > 0 && WordReverser.isLetter(bytes[cut - 1])) {
+                cut--;
+            }
+            WordReverser.reverseWords(bytes, 0, cut);
+            buffer.position(0).limit(cut);
+            writeFully(out, buffer);
+            total += cut;
+
+            carried = end - cut;
+            System.arraycopy(bytes, cut, bytes, 0, carried);
+        }
+        WordReverser.reverseWords(buffer.array(), 0, carried);
+        buffer.position(0).limit(carried);
+        writeFully(out, buffer);
+        return total + carried;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static int grow(int length) {
+        if (length >= Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("word too long to reverse");
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, length * 2L);
+    }
+}
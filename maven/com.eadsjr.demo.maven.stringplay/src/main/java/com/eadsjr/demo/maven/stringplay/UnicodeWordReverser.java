@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.text.BreakIterator;
+import java.util.Arrays;
+
+/**
+ * Reverses the words of text in any script, in place.
+ *
+ * A word is a run of code points for which Character.isLetter is true, and
+ * it is reversed code point by code point, so surrogate pairs stay whole. With
+ * graphemes on, the text is walked in user-perceived characters as found by a
+ * character BreakIterator instead: a character is a letter if its first code
+ * point is, and a word is reversed character by character, so combining marks
+ * stay on their letters.
+ *
+ * Runs of ASCII take the same two tight loops as WordReverser and never reach
+ * Character.isLetter or the BreakIterator, so English text costs about what
+ * it does there; only a word or gap containing another character is walked a
+ * unit at a time. An ASCII character followed by another is always a whole
+ * user-perceived character, so only the text from the first non-ASCII
+ * character on is given to the BreakIterator, and only if there is one.
+ *
+ * An instance keeps its buffers and BreakIterator for reuse and is not
+ * thread safe.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class UnicodeWordReverser {
+
+    private final boolean graphemes;
+    private BreakIterator breaks;
+    // where the BreakIterator's text starts in the chars, or -1 if unset
+    private int breaksBase;
+
+    // the start of each user-perceived character of the current word, from
+    // its first one of more than one char on
+    private int[] units = new int[64];
+    // where a word is rearranged by user-perceived character
+    private char[] scratch = new char[64];
+    // This is reused for every input that fits in it
+    private char[] buffer = new char[256];
+
+    /**
+     * Reverses by code point.
+     */
+    public UnicodeWordReverser() {
+        this(false);
+    }
+
+    /**
+     * @param graphemes true to reverse by user-perceived character rather
+     *        than by code point
+     */
+    public UnicodeWordReverser(boolean graphemes) {
+        this.graphemes = graphemes;
+    }
+
+    /**
+     * @param input the text whose words will be reversed
+     * @return the text with each word reversed
+     */
+    public String reverseWords(String input) {
+        int length = input.length();
+        if (buffer.length < length) {
+            buffer = new char[(int) Math.max(length,
+                    Math.min(Integer.MAX_VALUE - 8, buffer.length * 2L))];
+        }
+        char[] chars = buffer;
+        input.getChars(0, length, chars, 0);
+        reverseWords(chars, 0, length);
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Reverses each word between from and to, in place. A word running into
+     * either end of the span is treated as ending there.
+     *
+     * @param chars the text
+     * @param from the index of the first character to process
+     * @param to the index after the last character to process
+     */
+    public void reverseWords(char[] chars, int from, int to) {
+        breaksBase = -1;
+        int i = from;
+        while (i < to) {
+            // the ASCII fast path, as in WordReverser
+            while (i < to && chars[i] < 0x80 && !WordReverser.isLetter(chars[i])
+                    && asciiUnit(chars, i, to)) {
+                i++;
+            }
+            int start = i;
+            while (i < to && WordReverser.isLetter(chars[i])
+                    && asciiUnit(chars, i, to)) {
+                i++;
+            }
+            if (i < to && (chars[i] >= 0x80 || !asciiUnit(chars, i, to))) {
+                i = reverseUnicodeWord(chars, start, i, to);
+            } else {
+                WordReverser.reverse(chars, start, i - 1);
+            }
+        }
+    }
+
+    /**
+     * @return whether the ASCII character at i is a whole unit
+     */
+    private boolean asciiUnit(char[] chars, int i, int to) {
+        return !graphemes || i + 1 == to || chars[i + 1] < 0x80;
+    }
+
+    /**
+     * Finishes the word that started at start, whose ASCII letters have been
+     * passed up to i, one unit at a time. If there is no word yet and the
+     * unit at i is not a letter, it is skipped.
+     *
+     * @return the index after the word or skipped unit
+     */
+    private int reverseUnicodeWord(char[] chars, int start, int i, int to) {
+        // where the word's first unit of more than one char starts, or -1
+        int complex = -1;
+        int count = 0;
+        while (i < to) {
+            char c = chars[i];
+            boolean letter;
+            int next;
+            if (c < 0x80 && asciiUnit(chars, i, to)) {
+                letter = WordReverser.isLetter(c);
+                next = i + 1;
+            } else {
+                int codePoint = Character.codePointAt(chars, i, to);
+                letter = Character.isLetter(codePoint);
+                next = graphemes
+                        ? nextBoundary(chars, i, to)
+                        : i + Character.charCount(codePoint);
+            }
+            if (!letter) {
+                if (i == start) {
+                    return next;
+                }
+                break;
+            }
+            if (complex < 0 && next > i + 1) {
+                complex = i;
+            }
+            if (complex >= 0 && graphemes) {
+                if (count == units.length) {
+                    units = Arrays.copyOf(units, count * 2);
+                }
+                units[count++] = i;
+            }
+            i = next;
+        }
+        reverseWord(chars, start, i, complex, count);
+        return i;
+    }
+
+    /**
+     * @return the end of the user-perceived character starting at i
+     */
+    private int nextBoundary(char[] chars, int i, int to) {
+        if (breaksBase < 0) {
+            if (breaks == null) {
+                breaks = BreakIterator.getCharacterInstance();
+            }
+            breaks.setText(new String(chars, i, to - i));
+            breaksBase = i;
+        }
+        return breaksBase + breaks.following(i - breaksBase);
+    }
+
+    /**
+     * Reverses the word from start to end. Its units are all one char before
+     * complex, or throughout if complex is -1; in grapheme mode the count
+     * units from complex on start at the indexes in units.
+     */
+    private void reverseWord(char[] chars, int start, int end, int complex,
+            int count) {
+        if (complex < 0) {
+            WordReverser.reverse(chars, start, end - 1);
+        } else if (graphemes) {
+            int length = end - start;
+            if (scratch.length < length) {
+                scratch = new char[Math.max(length, scratch.length * 2)];
+            }
+            int at = 0;
+            for (int u = count - 1; u >= 0; u--) {
+                int unitEnd = u + 1 < count ? units[u + 1] : end;
+                System.arraycopy(chars, units[u], scratch, at, unitEnd - units[u]);
+                at += unitEnd - units[u];
+            }
+            for (int k = complex - 1; k >= start; k--) {
+                scratch[at++] = chars[k];
+            }
+            System.arraycopy(scratch, 0, chars, start, length);
+        } else {
+            WordReverser.reverse(chars, start, end - 1);
+            // put each reversed surrogate pair back in order
+            for (int k = start; k < end - 1; k++) {
+                if (Character.isLowSurrogate(chars[k])
+                        && Character.isHighSurrogate(chars[k + 1])) {
+                    char swap = chars[k];
+                    chars[k] = chars[k + 1];
+                    chars[++k] = swap;
+                }
+            }
+        }
+    }
+}
@@ -15,29 +15,191 @@
  */
 package com.eadsjr.demo.maven.stringplay;
 
-import java.util.function.Predicate;
-import java.util.regex.Pattern;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Program that reverses English words in string passed in by Terminal argument.
  * 
  * Only the words are reversed, not the whole String, punctuation or numbers.
  *
+ * Larger inputs can be streamed instead:
+ *
+ *   --stream [input [output]]   reverse a file, or stdin, to a file or stdout
+ *   --parallel [input [output]] the same, held in memory and done on all cores
+ *   --map input [output]        reverse a file through memory mappings
+ *   --lines [input [output]]    reverse each line on its own, on all cores,
+ *                               and report throughput to stderr
+ *   --cached [input [output]]   reverse through a cache of recent words and
+ *                               report its hit rate to stderr
+ *
+ * and text in any script with:
+ *
+ *   --unicode "text"            reverse by code point, any letter counting
+ *   --graphemes "text"          reverse by user-perceived character
+ *
  * @author Jason Randolph Eads <jeads442@gmail.com>
  */
 public class WordReversal {
 
+    private static final String USAGE
+            = "usage: WordReversal \"text to reverse\"\n"
+            + "       WordReversal --stream [input [output]]\n"
+            + "       WordReversal --parallel [input [output]]\n"
+            + "       WordReversal --map input [output]\n"
+            + "       WordReversal --lines [input [output]]\n"
+            + "       WordReversal --cached [input [output]]\n"
+            + "       WordReversal --unicode|--graphemes \"text to reverse\"";
+
     /**
      * Feeds input into function and prints output
      *
      * @param args the command line arguments, first one after name is input
+     * @throws IOException if a file or stream cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length == 0) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        switch (args[0]) {
+            case "--stream":
+                try (ReadableByteChannel in = openInput(args, 1);
+                        WritableByteChannel out = openOutput(args, 2)) {
+                    new StreamWordReverser().reverse(in, out);
+                }
+                break;
+            case "--parallel":
+                byte[] text = readAll(args, 1);
+                ParallelWordReverser.reverseWordsInPlace(text,
+                        ForkJoinPool.commonPool());
+                try (WritableByteChannel out = openOutput(args, 2)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(text);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                break;
+            case "--map":
+                if (args.length < 2) {
+                    System.err.println(USAGE);
+                    System.exit(1);
+                }
+                if (args.length > 2) {
+                    new MappedWordReverser().reverse(Paths.get(args[1]),
+                            Paths.get(args[2]));
+                } else {
+                    try (WritableByteChannel out = openOutput(args, 2)) {
+                        new MappedWordReverser().reverse(Paths.get(args[1]), out);
+                    }
+                }
+                break;
+            case "--lines":
+                try (BufferedReader in = args.length > 1
+                        ? Files.newBufferedReader(Paths.get(args[1]),
+                                StandardCharsets.UTF_8)
+                        : new BufferedReader(new InputStreamReader(System.in,
+                                StandardCharsets.UTF_8));
+                        Writer out = args.length > 2
+                        ? Files.newBufferedWriter(Paths.get(args[2]),
+                                StandardCharsets.UTF_8)
+                        : new BufferedWriter(new OutputStreamWriter(System.out,
+                                StandardCharsets.UTF_8))) {
+                    LineWordReverser.Statistics statistics = new LineWordReverser(
+                            Runtime.getRuntime().availableProcessors())
+                            .reverse(in, out);
+                    System.err.println(statistics);
+                }
+                break;
+            case "--cached":
+                char[] chars = new String(readAll(args, 1),
+                        StandardCharsets.UTF_8).toCharArray();
+                ReversedWordCache cache = new ReversedWordCache();
+                cache.reverseWords(chars, 0, chars.length);
+                try (Writer out = args.length > 2
+                        ? Files.newBufferedWriter(Paths.get(args[2]),
+                                StandardCharsets.UTF_8)
+                        : new BufferedWriter(new OutputStreamWriter(System.out,
+                                StandardCharsets.UTF_8))) {
+                    out.write(chars);
+                }
+                System.err.println(cache);
+                break;
+            case "--unicode":
+            case "--graphemes":
+                if (args.length < 2) {
+                    System.err.println(USAGE);
+                    System.exit(1);
+                }
+                System.out.println(new UnicodeWordReverser(
+                        args[0].equals("--graphemes")).reverseWords(args[1]));
+                break;
+            default:
+                //String input = "Hello World!!! How are things?";
+                String input = args[0];
+
+                System.out.println(WordReversal.reverseWordsInString(input));
+        }
+    }
+
+    /**
+     * @return the file named by args[index], or stdin if there is none
+     */
+    private static ReadableByteChannel openInput(String[] args, int index)
+            throws IOException {
+        if (args.length > index) {
+            return FileChannel.open(Paths.get(args[index]), StandardOpenOption.READ);
+        }
+        return Channels.newChannel(System.in);
+    }
+
+    /**
+     * @return the whole of the file named by args[index], or of stdin
      */
-    public static void main(String[] args) {
+    private static byte[] readAll(String[] args, int index)
+            throws IOException {
+        if (args.length > index) {
+            return Files.readAllBytes(Paths.get(args[index]));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        InputStream in = System.in;
+        byte[] chunk = new byte[1 << 16];
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            bytes.write(chunk, 0, read);
+        }
+        return bytes.toByteArray();
+    }
 
-        //String input = "Hello World!!! How are things?";
-        String input = args[0];
-        
-        System.out.println(WordReversal.reverseWordsInString(input));
+    /**
+     * @return the file named by args[index], or stdout if there is none
+     */
+    private static WritableByteChannel openOutput(String[] args, int index)
+            throws IOException {
+        if (args.length > index) {
+            return FileChannel.open(Paths.get(args[index]),
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        return Channels.newChannel(System.out);
     }
 
     /**
@@ -48,56 +210,9 @@ public class WordReversal {
      */
     public static String reverseWordsInString(String input) {
 
-        // This is used to determine if the character is alpha numeric
-        Predicate<String> alphaPatternPredicate
-                = Pattern.compile("[a-zA-Z]").asPredicate();
-
-        // This stores a word, which will be reversed.
-        StringBuilder wordStringBuilder = new StringBuilder();
-
-        // This stores the ultimate output
-        StringBuilder newStringBuilder = new StringBuilder();
-
-        // This flag tells if you are currently collecting a word
-        boolean isInWord = false;
-
-        // For each character...
-        for (int i = 0; i < input.length(); i++) {
-
-            // Coerece character to String
-            String Char = input.charAt(i) + "";
-
-            // If in word...
-            if (isInWord) {
-                // add letters to word.
-                if (alphaPatternPredicate.test(Char)) {
-                    wordStringBuilder.append(Char);
-                } // OR terminate word, reverse it, append it,
-                // then add the new character directly.
-                else {
-                    isInWord = false;
-                    newStringBuilder.append(wordStringBuilder.reverse().toString());
-                    wordStringBuilder = new StringBuilder();
-                    newStringBuilder.append(Char);
-                }
-            } // Else if not in word
-            else {
-                // Initiate a new word and add the letter...
-                if (alphaPatternPredicate.test(Char)) {
-                    isInWord = true;
-                    wordStringBuilder.append(Char);
-                } // OR add a non-letter character directly
-                else {
-                    newStringBuilder.append(Char);
-                }
-            }
-        }
-
-        // Finish up if ending on a word.
-        if (isInWord) {
-            newStringBuilder.append(wordStringBuilder.reverse().toString());
-        }
-
-        return newStringBuilder.toString();
+        // One copy of the text, reversed word by word in place
+        char[] chars = input.toCharArray();
+        WordReverser.reverseWords(chars, 0, chars.length);
+        return new String(chars);
     }
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reverses the English words in text held in a char array, in place.
+ *
+ * A word is a run of the letters a-z and A-Z; everything else, including
+ * digits, punctuation and any non-ASCII character, is left where it is. The
+ * text is scanned once, each character is classified with a lookup table, and
+ * each word is reversed by swapping its ends, so no objects are created per
+ * character or per word.
+ *
+ * Byte text is classified eight bytes at a time instead: the bytes are read
+ * as one little-endian long, a mask with the high bit of each letter byte set
+ * is computed with a few additions, and the word edges are the bits where the
+ * mask differs from itself shifted one byte along. Spans shorter than
+ * SWAR_MIN_LENGTH, and the last few bytes of longer ones, fall back to the
+ * table. Byte arrays are wrapped in a ByteBuffer and share the one loop with
+ * buffers. Char text stays on the table, since assembling four chars into a
+ * long costs more than it saves.
+ *
+ * An instance keeps one buffer that grows to fit the largest input it has
+ * seen and is reused for every call. Instances are not thread safe.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public final class WordReverser {
+
+    /**
+     * True for the ASCII letters, indexed by character.
+     */
+    private static final boolean[] LETTERS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            LETTERS[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            LETTERS[c] = true;
+        }
+    }
+
+    /**
+     * Byte spans shorter than this are classified one byte at a time.
+     */
+    static final int SWAR_MIN_LENGTH = 16;
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long CASE_BITS = 0x2020202020202020L;
+    // added to a byte, these carry into its high bit at 'a' and past 'z'
+    private static final long FROM_A = 0x1F1F1F1F1F1F1F1FL;
+    private static final long PAST_Z = 0x0505050505050505L;
+
+    // This is reused for every input that fits in it
+    private char[] buffer;
+
+    public WordReverser() {
+        this(256);
+    }
+
+    /**
+     * @param capacity the number of characters to make room for up front
+     */
+    public WordReverser(int capacity) {
+        buffer = new char[Math.max(capacity, 16)];
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character is one of a-z or A-Z
+     */
+    public static boolean isLetter(char c) {
+        return c < 128 && LETTERS[c];
+    }
+
+    /**
+     * @param b a byte of ASCII or UTF-8 text
+     * @return true if the byte is one of a-z or A-Z
+     */
+    public static boolean isLetter(byte b) {
+        // bytes of multi-byte UTF-8 sequences are negative
+        return b >= 0 && LETTERS[b];
+    }
+
+    /**
+     * Reverses each word between from and to, in place. A word running into
+     * either end of the span is treated as ending there.
+     *
+     * @param chars the text
+     * @param from the index of the first character to process
+     * @param to the index after the last character to process
+     */
+    public static void reverseWords(char[] chars, int from, int to) {
+        int i = from;
+        while (i < to) {
+            // skip to the start of the next word
+            while (i < to && !isLetter(chars[i])) {
+                i++;
+            }
+            int start = i;
+            while (i < to && isLetter(chars[i])) {
+                i++;
+            }
+            reverse(chars, start, i - 1);
+        }
+    }
+
+    /**
+     * Reverses each word between from and to, in place, treating the bytes as
+     * ASCII. Bytes of multi-byte UTF-8 sequences are never letters, so UTF-8
+     * text is handled too and its other characters are left intact.
+     *
+     * @param bytes the text
+     * @param from the index of the first byte to process
+     * @param to the index after the last byte to process
+     */
+    public static void reverseWords(byte[] bytes, int from, int to) {
+        if (to - from < SWAR_MIN_LENGTH) {
+            reverseWordsByByte(bytes, from, to);
+            return;
+        }
+        reverseWords(ByteBuffer.wrap(bytes), from, to);
+    }
+
+    /**
+     * The scalar form of reverseWords(byte[], int, int), one table lookup per
+     * byte.
+     */
+    static void reverseWordsByByte(byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to) {
+            while (i < to && !isLetter(bytes[i])) {
+                i++;
+            }
+            int first = i;
+            while (i < to && isLetter(bytes[i])) {
+                i++;
+            }
+            reverse(bytes, first, i - 1);
+        }
+    }
+
+    /**
+     * Classifies eight bytes at once.
+     *
+     * @param eight eight bytes of ASCII or UTF-8 text
+     * @return the high bit of each byte set if that byte is one of a-z or A-Z,
+     *         and every other bit clear
+     */
+    static long letterMask(long eight) {
+        // fold A-Z onto a-z with the high bits out of the way of the carries
+        long folded = (eight & LOW_SEVEN_BITS) | CASE_BITS;
+        return (folded + FROM_A) & ~(folded + PAST_Z) & ~eight & HIGH_BITS;
+    }
+
+    /**
+     * Reverses each word between the absolute positions from and to, in
+     * place, treating the bytes as ASCII as above, eight at a time. The
+     * buffer's position, limit and byte order are not used or changed, so
+     * this works on a mapped file directly.
+     *
+     * @param bytes the text
+     * @param from the index of the first byte to process
+     * @param to the index after the last byte to process
+     */
+    public static void reverseWords(ByteBuffer bytes, int from, int to) {
+        // absolute gets and puts still stop at the limit, so lift it
+        ByteBuffer view = bytes.duplicate();
+        view.clear();
+        view.order(ByteOrder.LITTLE_ENDIAN);
+        boolean inWord = false;
+        int start = from;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long letters = letterMask(view.getLong(i));
+            long edges = letters ^ ((letters << 8) | (inWord ? 0x80L : 0L));
+            while (edges != 0) {
+                int bit = Long.numberOfTrailingZeros(edges);
+                int at = i + (bit >>> 3);
+                if ((letters & (1L << bit)) != 0) {
+                    start = at;
+                } else {
+                    reverse(view, start, at - 1);
+                }
+                edges &= edges - 1;
+            }
+            inWord = letters < 0;
+        }
+        for (; i < to; i++) {
+            boolean letter = isLetter(view.get(i));
+            if (letter != inWord) {
+                if (letter) {
+                    start = i;
+                } else {
+                    reverse(view, start, i - 1);
+                }
+                inWord = letter;
+            }
+        }
+        if (inWord) {
+            reverse(view, start, to - 1);
+        }
+    }
+
+    /**
+     * Reverses the characters from first to last inclusive.
+     */
+    static void reverse(char[] chars, int first, int last) {
+        while (first < last) {
+            char swap = chars[first];
+            chars[first++] = chars[last];
+            chars[last--] = swap;
+        }
+    }
+
+    private static void reverse(byte[] bytes, int first, int last) {
+        while (first < last) {
+            byte swap = bytes[first];
+            bytes[first++] = bytes[last];
+            bytes[last--] = swap;
+        }
+    }
+
+    private static void reverse(ByteBuffer bytes, int first, int last) {
+        while (first < last) {
+            byte swap = bytes.get(first);
+            bytes.put(first++, bytes.get(last));
+            bytes.put(last--, swap);
+        }
+    }
+
+    /**
+     * @param input the text whose words will be reversed
+     * @return the text with each word reversed
+     */
+    public String reverseWords(String input) {
+        int length = input.length();
+        char[] chars = ensureCapacity(length);
+        input.getChars(0, length, chars, 0);
+        reverseWords(chars, 0, length);
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Appends the text with each word reversed to the output.
+     *
+     * @param input the text whose words will be reversed
+     * @param output where the result is appended
+     */
+    public void reverseWords(CharSequence input, StringBuilder output) {
+        int length = input.length();
+        char[] chars = ensureCapacity(length);
+        if (input instanceof String) {
+            ((String) input).getChars(0, length, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = input.charAt(i);
+            }
+        }
+        reverseWords(chars, 0, length);
+        output.append(chars, 0, length);
+    }
+
+    private char[] ensureCapacity(int length) {
+        if (buffer.length < length) {
+            buffer = new char[(int) Math.max(length,
+                    Math.min(Integer.MAX_VALUE - 8, buffer.length * 2L))];
+        }
+        return buffer;
+    }
+}
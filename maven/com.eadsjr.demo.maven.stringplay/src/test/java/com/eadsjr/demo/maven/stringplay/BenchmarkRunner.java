@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the stringplay benchmarks. Arguments are ordinary JMH command line
+ * options and override the defaults, for example "-p length=1024" or
+ * "-wi 1 -i 1" for a quick pass.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class BenchmarkRunner {
+
+    /**
+     * @param args JMH command line options
+     * @throws java.lang.Exception
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(WordReverserBenchmark.class.getSimpleName());
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import static org.testng.Assert.*;
+
+/**
+ * Checks that LineWordReverser writes every line, reversed as
+ * WordReversal.reverseWordsInString would, in input order, for a range of
+ * thread counts, batch sizes and limits on batches in flight.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class LineWordReverserNGTest {
+
+    private static final int LINES = 3000;
+
+    private static final int[] THREADS = { 1, 2, 4, 8 };
+    private static final int[] BATCH_SIZES = { 1, 3, 64, 5000 };
+    private static final int[] BATCHES_IN_FLIGHT = { 1, 2, 16 };
+
+    private static String input;
+    private static String expected;
+
+    public LineWordReverserNGTest() {
+    }
+
+    @org.testng.annotations.BeforeClass
+    public static void setUpClass() {
+        // numbered lines of varying length, so any reordering shows
+        Random random = new Random(47);
+        StringBuilder in = new StringBuilder();
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            StringBuilder line = new StringBuilder("line ").append(i);
+            int words = random.nextInt(12);
+            for (int w = 0; w < words; w++) {
+                line.append(random.nextBoolean() ? ' ' : ',');
+                int length = 1 + random.nextInt(random.nextInt(10) == 0 ? 200 : 8);
+                for (int c = 0; c < length; c++) {
+                    line.append((char) ('a' + random.nextInt(26)));
+                }
+            }
+            in.append(line).append('\n');
+            out.append(WordReversal.reverseWordsInString(line.toString()))
+                    .append('\n');
+        }
+        input = in.toString();
+        expected = out.toString();
+    }
+
+    /**
+     * Test of reverse method, of class LineWordReverser.
+     */
+    @org.testng.annotations.Test(timeOut = 60000)
+    public void testReverseKeepsOrder() throws IOException {
+        for (int threads : THREADS) {
+            for (int batchSize : BATCH_SIZES) {
+                for (int inFlight : BATCHES_IN_FLIGHT) {
+                    String settings = threads + " threads, batches of "
+                            + batchSize + ", " + inFlight + " in flight";
+                    LineWordReverser instance
+                            = new LineWordReverser(threads, batchSize, inFlight);
+                    StringWriter out = new StringWriter();
+                    LineWordReverser.Statistics statistics = instance.reverse(
+                            new BufferedReader(new StringReader(input)), out);
+                    assertEquals(out.toString(), expected, settings);
+                    assertEquals(statistics.getLines(), LINES, settings);
+                    assertEquals(statistics.getBatches(),
+                            (LINES + batchSize - 1) / batchSize, settings);
+                    // the end marker is filed without a permit
+                    assertTrue(statistics.getReordered().getMax() <= inFlight + 1,
+                            settings);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of reverse method with no lines.
+     */
+    @org.testng.annotations.Test(timeOut = 10000)
+    public void testReverseEmpty() throws IOException {
+        StringWriter out = new StringWriter();
+        LineWordReverser.Statistics statistics = new LineWordReverser(2)
+                .reverse(new BufferedReader(new StringReader("")), out);
+        assertEquals(out.toString(), "");
+        assertEquals(statistics.getLines(), 0);
+        assertEquals(statistics.getBatches(), 0);
+    }
+
+    /**
+     * An unchecked failure while reading must reach the caller rather than
+     * leave it waiting for the end of the input.
+     */
+    @org.testng.annotations.Test(timeOut = 10000)
+    public void testReadFailureIsReported() throws IOException {
+        final RuntimeException failure = new RuntimeException("broken reader");
+        BufferedReader in = new BufferedReader(new StringReader(input)) {
+            private int lines;
+
+            @Override
+            public String readLine() throws IOException {
+                if (++lines > 10) {
+                    throw failure;
+                }
+                return super.readLine();
+            }
+        };
+        try {
+            new LineWordReverser(2, 3, 2).reverse(in, new StringWriter());
+            fail("the failure was not reported");
+        } catch (IllegalStateException e) {
+            assertSame(e.getCause(), failure);
+        }
+    }
+
+    /**
+     * A read failure is thrown once the batches read before it are written.
+     */
+    @org.testng.annotations.Test(timeOut = 10000)
+    public void testIOExceptionIsThrown() {
+        final IOException failure = new IOException("disk gone");
+        BufferedReader in = new BufferedReader(new StringReader(input)) {
+            private int lines;
+
+            @Override
+            public String readLine() throws IOException {
+                if (++lines > 10) {
+                    throw failure;
+                }
+                return super.readLine();
+            }
+        };
+        StringWriter out = new StringWriter();
+        try {
+            new LineWordReverser(2, 3, 2).reverse(in, out);
+            fail("the failure was not thrown");
+        } catch (IOException e) {
+            assertSame(e, failure);
+        }
+        // three full batches; the line in the unfinished one is dropped
+        assertEquals(out.toString(), expected.substring(0,
+                expected.indexOf("enil 9")));
+    }
+
+    @org.testng.annotations.Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBatchSizeMustBePositive() {
+        new LineWordReverser(1, 0, 1);
+    }
+}
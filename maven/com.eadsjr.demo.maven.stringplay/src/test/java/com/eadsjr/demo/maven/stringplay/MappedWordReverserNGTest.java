@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.testng.Assert.*;
+
+/**
+ * Checks each MappedWordReverser entry point on temporary files against
+ * WordReversal.reverseWordsInString, with windows small enough that words
+ * are cut by window boundaries and whole windows are one word.
+ *
+ * Mappings are only released when their buffers are collected, so the
+ * collector is asked to run between window sizes to keep the number of
+ * live mappings down.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class MappedWordReverserNGTest {
+
+    private static final String TEXT
+            = "It was the best of times, it was the worst of times; "
+            + "Pneumonoultramicroscopicsilicovolcanoconiosis (1775) café "
+            + "naïve résumé  \t\nab-cd e'f 42x y42 end";
+
+    private static final int[] WINDOW_SIZES
+            = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 16, 17, 31, 44, 45,
+                46, 64, 100, 4096 };
+
+    private Path directory;
+    private byte[] text;
+    private byte[] expected;
+
+    public MappedWordReverserNGTest() {
+    }
+
+    @org.testng.annotations.BeforeMethod
+    public void setUpMethod() throws IOException {
+        directory = Files.createTempDirectory("mapped");
+        text = TEXT.getBytes(StandardCharsets.UTF_8);
+        expected = WordReversal.reverseWordsInString(TEXT)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @org.testng.annotations.AfterMethod
+    public void tearDownMethod() throws IOException {
+        System.gc();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Test of reverseInPlace method, of class MappedWordReverser.
+     */
+    @org.testng.annotations.Test
+    public void testReverseInPlace() throws IOException {
+        Path file = directory.resolve("text");
+        for (int windowSize : WINDOW_SIZES) {
+            Files.write(file, text);
+            MappedWordReverser instance = new MappedWordReverser(windowSize);
+            assertEquals(instance.reverseInPlace(file), text.length);
+            assertEquals(Files.readAllBytes(file), expected, "window " + windowSize);
+            System.gc();
+        }
+    }
+
+    /**
+     * Test of reverse(Path, Path) method, of class MappedWordReverser.
+     */
+    @org.testng.annotations.Test
+    public void testReverseToFile() throws IOException {
+        Path input = directory.resolve("input");
+        Path output = directory.resolve("output");
+        Files.write(input, text);
+        for (int windowSize : WINDOW_SIZES) {
+            // longer than the result, to check it is truncated
+            Files.write(output, new byte[text.length * 2]);
+            MappedWordReverser instance = new MappedWordReverser(windowSize);
+            assertEquals(instance.reverse(input, output), text.length);
+            assertEquals(Files.readAllBytes(output), expected, "window " + windowSize);
+            assertEquals(Files.readAllBytes(input), text);
+            System.gc();
+        }
+
+        // the same file on both sides is rewritten in place
+        new MappedWordReverser(4).reverse(input, input);
+        assertEquals(Files.readAllBytes(input), expected);
+    }
+
+    /**
+     * Test of reverse(Path, WritableByteChannel) method, of class
+     * MappedWordReverser.
+     */
+    @org.testng.annotations.Test
+    public void testReverseToChannel() throws IOException {
+        Path input = directory.resolve("input");
+        Files.write(input, text);
+        for (int windowSize : WINDOW_SIZES) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            MappedWordReverser instance = new MappedWordReverser(windowSize);
+            assertEquals(instance.reverse(input, Channels.newChannel(out)),
+                    text.length);
+            assertEquals(out.toByteArray(), expected, "window " + windowSize);
+            // the private mapping leaves the file alone
+            assertEquals(Files.readAllBytes(input), text);
+            System.gc();
+        }
+    }
+
+    /**
+     * An empty file has no windows to map.
+     */
+    @org.testng.annotations.Test
+    public void testEmptyFile() throws IOException {
+        Path input = directory.resolve("empty");
+        Path output = directory.resolve("output");
+        Files.write(input, new byte[0]);
+        MappedWordReverser instance = new MappedWordReverser(1);
+        assertEquals(instance.reverseInPlace(input), 0);
+        assertEquals(instance.reverse(input, output), 0);
+        assertEquals(Files.size(output), 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(instance.reverse(input, Channels.newChannel(out)), 0);
+        assertEquals(out.size(), 0);
+    }
+
+    @org.testng.annotations.Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWindowSizeMustBePositive() {
+        new MappedWordReverser(0);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.testng.Assert.*;
+
+/**
+ * Checks every form of ParallelWordReverser against
+ * WordReversal.reverseWordsInString on texts long enough to be split into
+ * segments, including texts that cannot be split at all or only at one end.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class ParallelWordReverserNGTest {
+
+    /**
+     * Long enough to be cut several times over.
+     */
+    private static final int LENGTH = 8 * ParallelWordReverser.MIN_SEGMENT + 123;
+
+    private static ForkJoinPool pool;
+
+    public ParallelWordReverserNGTest() {
+    }
+
+    @org.testng.annotations.BeforeClass
+    public static void setUpClass() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @org.testng.annotations.AfterClass
+    public static void tearDownClass() {
+        pool.shutdown();
+    }
+
+    /**
+     * Random text, with words up to a few hundred letters long so that cuts
+     * sometimes have to search a long way from the midpoint.
+     */
+    @org.testng.annotations.Test
+    public void testRandomText() {
+        Random random = new Random(45);
+        StringBuilder text = new StringBuilder(LENGTH);
+        while (text.length() < LENGTH) {
+            int word = random.nextInt(10) == 0
+                    ? random.nextInt(500) : random.nextInt(10);
+            for (int i = 0; i < word; i++) {
+                text.append((char) ((random.nextBoolean() ? 'a' : 'A')
+                        + random.nextInt(26)));
+            }
+            text.append(" ,.!-9\n".charAt(random.nextInt(7)));
+        }
+        text.setLength(LENGTH);
+        checkAllForms(text.toString());
+    }
+
+    /**
+     * One word with no non-letter anywhere, which cannot be cut.
+     */
+    @org.testng.annotations.Test
+    public void testOneWord() {
+        checkAllForms(word(LENGTH));
+    }
+
+    /**
+     * One word after or before a single non-letter, which is the only place
+     * a cut can go.
+     */
+    @org.testng.annotations.Test
+    public void testSingleNonLetterAtEitherEnd() {
+        checkAllForms(" " + word(LENGTH));
+        checkAllForms(word(LENGTH) + " ");
+        checkAllForms("7" + word(LENGTH) + ".");
+    }
+
+    /**
+     * Runs the text through every form and checks each against the
+     * sequential result.
+     */
+    private static void checkAllForms(String text) {
+        String expected = WordReversal.reverseWordsInString(text);
+
+        assertEquals(ParallelWordReverser.reverseWords(text, pool), expected);
+
+        char[] input = text.toCharArray();
+        char[] output = ParallelWordReverser.reverseWords(input, pool);
+        assertEquals(new String(output), expected);
+        // the input array is left as it was
+        assertTrue(Arrays.equals(input, text.toCharArray()));
+
+        char[] chars = text.toCharArray();
+        ParallelWordReverser.reverseWordsInPlace(chars, pool);
+        assertEquals(new String(chars), expected);
+
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        ParallelWordReverser.reverseWordsInPlace(bytes, pool);
+        assertEquals(new String(bytes, StandardCharsets.US_ASCII), expected);
+    }
+
+    private static String word(int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = (char) ('a' + i % 26);
+        }
+        return new String(letters);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.util.Random;
+import static org.testng.Assert.*;
+
+/**
+ * Checks ReversedWordCache against WordReversal.reverseWordsInString on
+ * random text drawn from more words than a small cache can hold, so entries
+ * are evicted and looked up again throughout, from one thread and from
+ * several sharing the cache, and checks the counts it keeps.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class ReversedWordCacheNGTest {
+
+    private static final String SEPARATORS = " ,.!-9\n";
+    private static final int VOCABULARY = 300;
+    private static final int MAX_WORD_LENGTH = 8;
+    private static final int ROUNDS = 200;
+    private static final int THREADS = 4;
+
+    public ReversedWordCacheNGTest() {
+    }
+
+    /**
+     * Test of reverseWords(String), of class ReversedWordCache, with a cache
+     * far smaller than the vocabulary.
+     */
+    @org.testng.annotations.Test
+    public void testEviction() {
+        Random random = new Random(50);
+        String[] words = vocabulary(random);
+        ReversedWordCache instance = new ReversedWordCache(20, MAX_WORD_LENGTH);
+        for (int round = 0; round < ROUNDS; round++) {
+            String text = randomText(random, words);
+            assertEquals(instance.reverseWords(text),
+                    WordReversal.reverseWordsInString(text));
+            assertTrue(instance.size() <= instance.getCapacity(),
+                    instance.toString());
+        }
+        assertTrue(instance.getHitCount() > 0);
+        assertTrue(instance.getMissCount() > instance.getCapacity());
+    }
+
+    /**
+     * Test of reverseWords(String), of class ReversedWordCache, with several
+     * threads sharing one small cache.
+     */
+    @org.testng.annotations.Test
+    public void testSharedBetweenThreads() throws InterruptedException {
+        final String[] words = vocabulary(new Random(51));
+        final ReversedWordCache instance
+                = new ReversedWordCache(20, MAX_WORD_LENGTH);
+        final String[][] inputs = new String[THREADS][ROUNDS];
+        final String[][] outputs = new String[THREADS][ROUNDS];
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            Random random = new Random(52 + t);
+            for (int round = 0; round < ROUNDS; round++) {
+                inputs[thread][round] = randomText(random, words);
+            }
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int round = 0; round < ROUNDS; round++) {
+                        outputs[thread][round]
+                                = instance.reverseWords(inputs[thread][round]);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int t = 0; t < THREADS; t++) {
+            for (int round = 0; round < ROUNDS; round++) {
+                assertEquals(outputs[t][round],
+                        WordReversal.reverseWordsInString(inputs[t][round]),
+                        "thread " + t + " round " + round);
+            }
+        }
+        assertTrue(instance.size() <= instance.getCapacity(),
+                instance.toString());
+    }
+
+    /**
+     * Words of one letter and words over the length limit are reversed
+     * without touching the cache or its counts.
+     */
+    @org.testng.annotations.Test
+    public void testBypass() {
+        ReversedWordCache instance = new ReversedWordCache(64, 3);
+        for (int round = 0; round < 2; round++) {
+            assertEquals(instance.reverseWords("a b, c abcd wxyz!"),
+                    "a b, c dcba zyxw!");
+        }
+        assertEquals(instance.getHitCount(), 0);
+        assertEquals(instance.getMissCount(), 0);
+        assertEquals(instance.getHitRate(), 0.0);
+        assertEquals(instance.size(), 0);
+    }
+
+    /**
+     * Test of getHitCount, getMissCount, getHitRate, size and clear, of
+     * class ReversedWordCache.
+     */
+    @org.testng.annotations.Test
+    public void testCounts() {
+        ReversedWordCache instance = new ReversedWordCache(64, 5);
+        assertEquals(instance.getCapacity(), 64);
+        assertEquals(instance.reverseWords("abc abc x abcdefg ab"),
+                "cba cba x gfedcba ba");
+        assertEquals(instance.getHitCount(), 1);
+        assertEquals(instance.getMissCount(), 2);
+        assertEquals(instance.getHitRate(), 1.0 / 3, 1e-9);
+        assertEquals(instance.size(), 2);
+
+        instance.clear();
+        assertEquals(instance.getHitCount(), 0);
+        assertEquals(instance.getMissCount(), 0);
+        assertEquals(instance.getHitRate(), 0.0);
+        assertEquals(instance.size(), 0);
+
+        // the words must be looked up afresh
+        assertEquals(instance.reverseWords("ab abc"), "ba cba");
+        assertEquals(instance.getHitCount(), 0);
+        assertEquals(instance.getMissCount(), 2);
+    }
+
+    /**
+     * The capacity is rounded up to fill every stripe evenly.
+     */
+    @org.testng.annotations.Test
+    public void testCapacity() {
+        assertEquals(new ReversedWordCache(1, 4).getCapacity(), 16);
+        assertEquals(new ReversedWordCache(20, 4).getCapacity(), 32);
+        assertEquals(new ReversedWordCache().getCapacity(),
+                ReversedWordCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Words of one letter up to a few over the length limit, in mixed case.
+     */
+    private static String[] vocabulary(Random random) {
+        String[] words = new String[VOCABULARY];
+        for (int w = 0; w < VOCABULARY; w++) {
+            char[] word = new char[1 + random.nextInt(MAX_WORD_LENGTH + 3)];
+            for (int i = 0; i < word.length; i++) {
+                word[i] = (char) ((random.nextBoolean() ? 'a' : 'A')
+                        + random.nextInt(26));
+            }
+            words[w] = new String(word);
+        }
+        return words;
+    }
+
+    private static String randomText(Random random, String[] words) {
+        StringBuilder text = new StringBuilder();
+        int count = random.nextInt(40);
+        for (int i = 0; i < count; i++) {
+            text.append(words[random.nextInt(words.length)]);
+            text.append(SEPARATORS.charAt(random.nextInt(SEPARATORS.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import static org.testng.Assert.*;
+
+/**
+ * Checks StreamWordReverser against WordReversal.reverseWordsInString for
+ * every chunk size from one up past the longest word, so that words are cut
+ * by chunk boundaries at every offset.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class StreamWordReverserNGTest {
+
+    private static final String LONG_WORD
+            = "Pneumonoultramicroscopicsilicovolcanoconiosis";
+
+    private static final String TEXT
+            = "It was the best of times, it was the worst of times; "
+            + LONG_WORD + " (1775) café naïve résumé "
+            + "  \t\nab-cd e'f 42x y42 " + LONG_WORD + LONG_WORD.length()
+            + " end" + LONG_WORD;
+
+    private static final int MAX_CHUNK_SIZE = LONG_WORD.length() * 2 + 8;
+
+    public StreamWordReverserNGTest() {
+    }
+
+    /**
+     * Test of reverse(Reader, Writer), of class StreamWordReverser.
+     */
+    @org.testng.annotations.Test
+    public void testReverseReader() throws IOException {
+        String expected = WordReversal.reverseWordsInString(TEXT);
+        for (int chunkSize = 1; chunkSize <= MAX_CHUNK_SIZE; chunkSize++) {
+            StreamWordReverser instance = new StreamWordReverser(chunkSize);
+            StringWriter out = new StringWriter();
+            assertEquals(instance.reverse(new StringReader(TEXT), out),
+                    TEXT.length());
+            assertEquals(out.toString(), expected, "chunk size " + chunkSize);
+
+            out = new StringWriter();
+            instance.reverse(new TricklingReader(TEXT, 3), out);
+            assertEquals(out.toString(), expected, "chunk size " + chunkSize);
+        }
+    }
+
+    /**
+     * Test of reverse(ReadableByteChannel, WritableByteChannel), of class
+     * StreamWordReverser.
+     */
+    @org.testng.annotations.Test
+    public void testReverseChannel() throws IOException {
+        byte[] text = TEXT.getBytes(StandardCharsets.UTF_8);
+        byte[] expected = WordReversal.reverseWordsInString(TEXT)
+                .getBytes(StandardCharsets.UTF_8);
+        for (int chunkSize = 1; chunkSize <= MAX_CHUNK_SIZE; chunkSize++) {
+            StreamWordReverser instance = new StreamWordReverser(chunkSize);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(instance.reverse(
+                    Channels.newChannel(new ByteArrayInputStream(text)),
+                    Channels.newChannel(out)), text.length);
+            assertEquals(out.toByteArray(), expected, "chunk size " + chunkSize);
+
+            out = new ByteArrayOutputStream();
+            instance.reverse(new TricklingChannel(text, 3),
+                    Channels.newChannel(out));
+            assertEquals(out.toByteArray(), expected, "chunk size " + chunkSize);
+        }
+    }
+
+    /**
+     * A word longer than the chunk must grow the buffer rather than be split.
+     */
+    @org.testng.annotations.Test
+    public void testWordLongerThanChunk() throws IOException {
+        String input = "a " + LONG_WORD + LONG_WORD + " b";
+        String expected = WordReversal.reverseWordsInString(input);
+        StringWriter out = new StringWriter();
+        new StreamWordReverser(4).reverse(new StringReader(input), out);
+        assertEquals(out.toString(), expected);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new StreamWordReverser(4).reverse(
+                Channels.newChannel(new ByteArrayInputStream(
+                        input.getBytes(StandardCharsets.US_ASCII))),
+                Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.US_ASCII),
+                expected);
+    }
+
+    /**
+     * Test of reverse with empty input.
+     */
+    @org.testng.annotations.Test
+    public void testEmpty() throws IOException {
+        StringWriter out = new StringWriter();
+        assertEquals(new StreamWordReverser(1).reverse(new StringReader(""), out), 0);
+        assertEquals(out.toString(), "");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(new StreamWordReverser(1).reverse(
+                Channels.newChannel(new ByteArrayInputStream(new byte[0])),
+                Channels.newChannel(bytes)), 0);
+        assertEquals(bytes.size(), 0);
+    }
+
+    @org.testng.annotations.Test(expectedExceptions = IllegalArgumentException.class)
+    public void testChunkSizeMustBePositive() {
+        new StreamWordReverser(0);
+    }
+
+    /**
+     * Hands out at most a few characters per read, as a slow stream would.
+     */
+    private static final class TricklingReader extends Reader {
+        private final StringReader text;
+        private final int most;
+
+        TricklingReader(String text, int most) {
+            this.text = new StringReader(text);
+            this.most = most;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return text.read(buffer, offset, Math.min(length, most));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Hands out at most a few bytes per read, as a socket might.
+     */
+    private static final class TricklingChannel implements ReadableByteChannel {
+        private final ByteBuffer text;
+        private final int most;
+
+        TricklingChannel(byte[] text, int most) {
+            this.text = ByteBuffer.wrap(text);
+            this.most = most;
+        }
+
+        @Override
+        public int read(ByteBuffer buffer) {
+            if (!text.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(most, Math.min(buffer.remaining(), text.remaining()));
+            for (int i = 0; i < count; i++) {
+                buffer.put(text.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
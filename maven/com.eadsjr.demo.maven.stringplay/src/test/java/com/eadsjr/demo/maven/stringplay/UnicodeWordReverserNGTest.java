@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.testng.Assert.*;
+
+/**
+ * Checks UnicodeWordReverser against plain reference implementations that
+ * split the text into code points or user-perceived characters up front and
+ * reverse each run of letters, on random text built from ASCII, accented and
+ * combining characters, surrogate pairs, lone surrogates and flags, so that
+ * the ASCII fast path hands off to the slow path at every kind of character.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class UnicodeWordReverserNGTest {
+
+    private static final String[] PIECES = {
+        "a", "b", "Z", " ", ",", "1", "\r\n",
+        "\u00E9", // e with an acute accent, precomposed
+        "\u0301", // combining acute accent
+        "\u65E5", // a CJK letter
+        "\u00DF", // sharp s, a letter with no one-char capital
+        "\u044B", // a Cyrillic letter
+        "\uD83D\uDE00", // an emoji, not a letter
+        "\uD835\uDC9C", // a mathematical script A, a letter outside the BMP
+        "\uD835", // a lone high surrogate
+        "\uDC9C", // a lone low surrogate
+        "\uD83C\uDDEB\uD83C\uDDF7" // a flag, two regional indicators
+    };
+
+    private static final int ROUNDS = 20000;
+
+    public UnicodeWordReverserNGTest() {
+    }
+
+    /**
+     * Test of reverseWords(String) by code point, against the reference.
+     */
+    @org.testng.annotations.Test
+    public void testReverseByCodePoint() {
+        Random random = new Random(11);
+        UnicodeWordReverser instance = new UnicodeWordReverser();
+        for (int round = 0; round < ROUNDS; round++) {
+            String text = randomText(random);
+            assertEquals(instance.reverseWords(text), byCodePoint(text),
+                    escape(text));
+        }
+    }
+
+    /**
+     * Test of reverseWords(String) by user-perceived character, against the
+     * reference.
+     */
+    @org.testng.annotations.Test
+    public void testReverseByGrapheme() {
+        Random random = new Random(12);
+        UnicodeWordReverser instance = new UnicodeWordReverser(true);
+        for (int round = 0; round < ROUNDS; round++) {
+            String text = randomText(random);
+            assertEquals(instance.reverseWords(text), byGrapheme(text),
+                    escape(text));
+        }
+    }
+
+    /**
+     * Test of reverseWords(char[], int, int), which must treat the ends of
+     * the span as word breaks and leave the rest of the array alone.
+     */
+    @org.testng.annotations.Test
+    public void testReverseSpan() {
+        Random random = new Random(13);
+        UnicodeWordReverser byCodePoint = new UnicodeWordReverser();
+        UnicodeWordReverser byGrapheme = new UnicodeWordReverser(true);
+        for (int round = 0; round < ROUNDS / 10; round++) {
+            String text = randomText(random);
+            int from = random.nextInt(text.length() + 1);
+            int to = from + random.nextInt(text.length() - from + 1);
+            String span = text.substring(from, to);
+
+            char[] chars = text.toCharArray();
+            byCodePoint.reverseWords(chars, from, to);
+            assertEquals(new String(chars), text.substring(0, from)
+                    + byCodePoint(span) + text.substring(to), escape(text));
+
+            chars = text.toCharArray();
+            byGrapheme.reverseWords(chars, from, to);
+            assertEquals(new String(chars), text.substring(0, from)
+                    + byGrapheme(span) + text.substring(to), escape(text));
+        }
+    }
+
+    /**
+     * Particular cases, including each hand-off between the ASCII loops and
+     * the slow path.
+     */
+    @org.testng.annotations.Test
+    public void testExamples() {
+        UnicodeWordReverser byCodePoint = new UnicodeWordReverser();
+        UnicodeWordReverser byGrapheme = new UnicodeWordReverser(true);
+        assertEquals(byCodePoint.reverseWords("Hello, W\u00F6rld!"),
+                "olleH, dlr\u00F6W!");
+        // a letter outside the BMP keeps its surrogates in order
+        assertEquals(byCodePoint.reverseWords("\uD835\uDC9C\uD835\uDC9Ec"),
+                "c\uD835\uDC9E\uD835\uDC9C");
+        // a combining mark is a separate code point, and not a letter
+        assertEquals(byCodePoint.reverseWords("cafe\u0301"), "efac\u0301");
+        // but stays on its letter by grapheme, even an ASCII one
+        assertEquals(byGrapheme.reverseWords("cafe\u0301"), "e\u0301fac");
+        assertEquals(byGrapheme.reverseWords("ab\u0301c d"), "cb\u0301a d");
+        assertEquals(byGrapheme.reverseWords("x\u0301"), "x\u0301");
+        // lone surrogates and flags are not letters and are left in place
+        assertEquals(byCodePoint.reverseWords("ab\uD835cd"), "ba\uD835dc");
+        assertEquals(byGrapheme.reverseWords("ab\uDC9Ccd"), "ba\uDC9Cdc");
+        assertEquals(byGrapheme.reverseWords(
+                "ab\uD83C\uDDEB\uD83C\uDDF7cd"), "ba\uD83C\uDDEB\uD83C\uDDF7dc");
+        assertEquals(byCodePoint.reverseWords(""), "");
+        assertEquals(byGrapheme.reverseWords(""), "");
+    }
+
+    /**
+     * The reused buffer must not leak text from a longer earlier input.
+     */
+    @org.testng.annotations.Test
+    public void testBufferReuse() {
+        UnicodeWordReverser instance = new UnicodeWordReverser(true);
+        char[] longWord = new char[1000];
+        Arrays.fill(longWord, 'q');
+        assertEquals(instance.reverseWords(new String(longWord) + "e\u0301"),
+                "e\u0301" + new String(longWord));
+        assertEquals(instance.reverseWords("ab"), "ba");
+        assertEquals(instance.reverseWords("\u00E9t\u00E9"), "\u00E9t\u00E9");
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int pieces = random.nextInt(30);
+        for (int i = 0; i < pieces; i++) {
+            // mostly ASCII, so the fast path is taken between the rest
+            text.append(PIECES[random.nextInt(random.nextBoolean()
+                    ? 7 : PIECES.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reverses each run of letters code point by code point.
+     */
+    private static String byCodePoint(String text) {
+        List<String> units = new ArrayList<>();
+        for (int i = 0; i < text.length();) {
+            int next = i + Character.charCount(text.codePointAt(i));
+            units.add(text.substring(i, next));
+            i = next;
+        }
+        return reverseRuns(units);
+    }
+
+    /**
+     * Reverses each run of letters by user-perceived character, a character
+     * being a letter if its first code point is.
+     */
+    private static String byGrapheme(String text) {
+        List<String> units = new ArrayList<>();
+        BreakIterator breaks = BreakIterator.getCharacterInstance();
+        breaks.setText(text);
+        int start = breaks.first();
+        for (int end = breaks.next(); end != BreakIterator.DONE;
+                start = end, end = breaks.next()) {
+            units.add(text.substring(start, end));
+        }
+        return reverseRuns(units);
+    }
+
+    private static String reverseRuns(List<String> units) {
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        while (i < units.size()) {
+            if (!isLetter(units.get(i))) {
+                out.append(units.get(i++));
+                continue;
+            }
+            int end = i;
+            while (end < units.size() && isLetter(units.get(end))) {
+                end++;
+            }
+            for (int k = end - 1; k >= i; k--) {
+                out.append(units.get(k));
+            }
+            i = end;
+        }
+        return out.toString();
+    }
+
+    private static boolean isLetter(String unit) {
+        return Character.isLetter(unit.codePointAt(0));
+    }
+
+    private static String escape(String text) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= ' ' && c < 0x7F) {
+                out.append(c);
+            } else {
+                out.append(String.format("\\u%04X", (int) c));
+            }
+        }
+        return out.toString();
+    }
+}
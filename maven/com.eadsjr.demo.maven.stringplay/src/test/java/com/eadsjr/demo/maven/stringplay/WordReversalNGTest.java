@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import static org.testng.Assert.*;
+
+/**
+ * Checks WordReversal.reverseWordsInString, which the other tests use as
+ * their oracle, against the regular expression and StringBuilder version it
+ * replaced, kept here as the reference.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class WordReversalNGTest {
+
+    /**
+     * The letters' edges, some ordinary text, and characters outside ASCII.
+     */
+    private static final char[] TRICKY = {
+        '@', 'A', 'Z', '[', '`', 'a', 'z', '{', ' ', ',', '\'', '-', '0',
+        '9', '\n', '\t', 'e', 't', 'o', 'n', 'E', 'T', '\u00C1', '\u00E9',
+        '\u00FF', '\u0301', '\uD835', '\uDC9C', '\uFF21'
+    };
+
+    private static final int ROUNDS = 20000;
+
+    public WordReversalNGTest() {
+    }
+
+    /**
+     * Test of reverseWordsInString method, of class WordReversal, on random
+     * text.
+     */
+    @org.testng.annotations.Test
+    public void testReverseWordsInString() {
+        Random random = new Random(43);
+        for (int round = 0; round < ROUNDS; round++) {
+            char[] text = new char[random.nextInt(64)];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = random.nextInt(4) == 0
+                        ? (char) random.nextInt(0x10000)
+                        : TRICKY[random.nextInt(TRICKY.length)];
+            }
+            String input = new String(text);
+            assertEquals(WordReversal.reverseWordsInString(input),
+                    reference(input));
+        }
+    }
+
+    /**
+     * Test of reverseWordsInString method, of class WordReversal, on fixed
+     * text.
+     */
+    @org.testng.annotations.Test
+    public void testExamples() {
+        assertEquals(WordReversal.reverseWordsInString(""), "");
+        assertEquals(WordReversal.reverseWordsInString("a"), "a");
+        assertEquals(WordReversal.reverseWordsInString("It's 42 o'clock!"),
+                "tI's 42 o'kcolc!");
+        assertEquals(WordReversal.reverseWordsInString(" ab,cd "), " ba,dc ");
+    }
+
+    /**
+     * The implementation before the char array rewrite: a word is a run of
+     * characters matching [a-zA-Z], collected and reversed with a
+     * StringBuilder.
+     */
+    private static String reference(String input) {
+        Predicate<String> letter = Pattern.compile("[a-zA-Z]").asPredicate();
+        StringBuilder word = new StringBuilder();
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < input.length(); i++) {
+            String c = input.charAt(i) + "";
+            if (letter.test(c)) {
+                word.append(c);
+            } else {
+                output.append(word.reverse()).append(c);
+                word.setLength(0);
+            }
+        }
+        return output.append(word.reverse()).toString();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH measurements of WordReverser on English text, comparing the table
+ * lookup per byte with the eight-bytes-at-a-time classification, and both
+ * with the char path and a direct buffer such as a mapped file gives. The
+ * char path is also measured through a ReversedWordCache, which has the
+ * paragraph's whole vocabulary in it after the first call.
+ *
+ * The text is reversed in place on every call, so it alternates between
+ * forwards and reversed, which is English-shaped either way.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordReverserBenchmark {
+
+    private static final String PARAGRAPH
+            = "It was the best of times, it was the worst of times, it was "
+            + "the age of wisdom, it was the age of foolishness, it was the "
+            + "epoch of belief, it was the epoch of incredulity, it was the "
+            + "season of Light, it was the season of Darkness (1775). ";
+
+    /**
+     * The paragraph repeated to the given length, in each form.
+     */
+    @State(Scope.Thread)
+    public static class Text {
+        @Param({ "1024", "65536" })
+        public int length;
+
+        public byte[] bytes;
+        public char[] chars;
+        public ByteBuffer direct;
+        public ReversedWordCache cache;
+
+        @Setup
+        public void setUp() {
+            StringBuilder text = new StringBuilder(length + PARAGRAPH.length());
+            while (text.length() < length) {
+                text.append(PARAGRAPH);
+            }
+            text.setLength(length);
+            bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+            chars = text.toString().toCharArray();
+            direct = ByteBuffer.allocateDirect(length);
+            direct.put(bytes).clear();
+            cache = new ReversedWordCache();
+        }
+    }
+
+    @Benchmark
+    public byte[] bytesByTable(Text text) {
+        WordReverser.reverseWordsByByte(text.bytes, 0, text.length);
+        return text.bytes;
+    }
+
+    @Benchmark
+    public byte[] bytesEightAtATime(Text text) {
+        WordReverser.reverseWords(text.bytes, 0, text.length);
+        return text.bytes;
+    }
+
+    @Benchmark
+    public ByteBuffer directBuffer(Text text) {
+        WordReverser.reverseWords(text.direct, 0, text.length);
+        return text.direct;
+    }
+
+    @Benchmark
+    public char[] chars(Text text) {
+        WordReverser.reverseWords(text.chars, 0, text.length);
+        return text.chars;
+    }
+
+    @Benchmark
+    public char[] charsCached(Text text) {
+        text.cache.reverseWords(text.chars, 0, text.length);
+        return text.chars;
+    }
+}
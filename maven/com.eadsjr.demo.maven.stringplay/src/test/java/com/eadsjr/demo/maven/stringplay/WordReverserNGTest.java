@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 Jason Randolph Eads
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.eadsjr.demo.maven.stringplay;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import static org.testng.Assert.*;
+
+/**
+ * Checks the eight-bytes-at-a-time byte paths of WordReverser against the
+ * table lookup one byte at a time, and both against the char path, on random
+ * text weighted towards the bytes either side of each letter range and their
+ * high-bit twins, where the arithmetic classification could go wrong.
+ *
+ * @author Jason Randolph Eads <jeads442@gmail.com>
+ */
+public class WordReverserNGTest {
+
+    /**
+     * The letters' edges, their high-bit twins, and some ordinary text.
+     */
+    private static final byte[] TRICKY = {
+        '@', 'A', 'Z', '[', '`', 'a', 'z', '{', (byte) 0xC0, (byte) 0xC1,
+        (byte) 0xDA, (byte) 0xDB, (byte) 0xE0, (byte) 0xE1, (byte) 0xFA,
+        (byte) 0xFB, (byte) 0x80, (byte) 0xFF, 0, 0x7F, ' ', ',', '0', '9',
+        'e', 't', 'o', 'n', 'E', 'T'
+    };
+
+    private static final int MAX_LENGTH = 200;
+    private static final int ROUNDS = 20;
+
+    public WordReverserNGTest() {
+    }
+
+    /**
+     * Test of letterMask method, of class WordReverser, for every byte value
+     * in every lane.
+     */
+    @org.testng.annotations.Test
+    public void testLetterMask() {
+        Random random = new Random(1);
+        for (int value = 0; value < 256; value++) {
+            for (int lane = 0; lane < 8; lane++) {
+                long eight = random.nextLong();
+                eight &= ~(0xFFL << (lane * 8));
+                eight |= (long) value << (lane * 8);
+                long mask = WordReverser.letterMask(eight);
+                for (int k = 0; k < 8; k++) {
+                    boolean letter = WordReverser.isLetter((byte) (eight >>> (k * 8)));
+                    assertEquals((mask >>> (k * 8)) & 0xFF, letter ? 0x80L : 0L,
+                            Long.toHexString(eight) + " byte " + k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of reverseWords(byte[], int, int), of class WordReverser.
+     */
+    @org.testng.annotations.Test
+    public void testReverseWordsBytes() {
+        Random random = new Random(2);
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int round = 0; round < ROUNDS; round++) {
+                byte[] text = randomText(random, length + 16);
+                int from = random.nextInt(9);
+                int to = from + length;
+                byte[] expected = text.clone();
+                WordReverser.reverseWordsByByte(expected, from, to);
+                byte[] actual = text.clone();
+                WordReverser.reverseWords(actual, from, to);
+                assertEquals(actual, expected, describe(text, from, to));
+            }
+        }
+    }
+
+    /**
+     * Test of reverseWords(ByteBuffer, int, int), of class WordReverser, on
+     * heap and direct buffers, which must keep their position, limit and
+     * byte order.
+     */
+    @org.testng.annotations.Test
+    public void testReverseWordsByteBuffer() {
+        Random random = new Random(3);
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int round = 0; round < ROUNDS; round++) {
+                byte[] text = randomText(random, length + 16);
+                int from = random.nextInt(9);
+                int to = from + length;
+                byte[] expected = text.clone();
+                WordReverser.reverseWordsByByte(expected, from, to);
+
+                ByteBuffer heap = ByteBuffer.wrap(text.clone());
+                ByteBuffer direct = ByteBuffer.allocateDirect(text.length);
+                direct.put(text).clear();
+                for (ByteBuffer buffer : new ByteBuffer[] { heap, direct }) {
+                    buffer.position(3).limit(5).order(ByteOrder.BIG_ENDIAN);
+                    WordReverser.reverseWords(buffer, from, to);
+                    assertEquals(buffer.position(), 3);
+                    assertEquals(buffer.limit(), 5);
+                    assertEquals(buffer.order(), ByteOrder.BIG_ENDIAN);
+                    byte[] actual = new byte[text.length];
+                    buffer.clear();
+                    buffer.get(actual);
+                    assertEquals(actual, expected, (buffer.isDirect()
+                            ? "direct " : "heap ") + describe(text, from, to));
+                }
+            }
+        }
+    }
+
+    /**
+     * The byte paths agree with the char path on the same text, read as
+     * ISO-8859-1 so that each byte is one char.
+     */
+    @org.testng.annotations.Test
+    public void testBytesMatchChars() {
+        Random random = new Random(4);
+        WordReverser instance = new WordReverser();
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            byte[] text = randomText(random, length);
+            String expected = instance.reverseWords(
+                    new String(text, StandardCharsets.ISO_8859_1));
+            WordReverser.reverseWords(text, 0, length);
+            assertEquals(new String(text, StandardCharsets.ISO_8859_1), expected);
+        }
+    }
+
+    /**
+     * Test of reverseWords(String), of class WordReverser.
+     */
+    @org.testng.annotations.Test
+    public void testReverseWordsString() {
+        WordReverser instance = new WordReverser(1);
+        assertEquals(instance.reverseWords(""), "");
+        assertEquals(instance.reverseWords("Hello, world! x 42abc"),
+                "olleH, dlrow! x 42cba");
+        assertEquals(instance.reverseWords("caf\u00E9"), "fac\u00E9");
+    }
+
+    /**
+     * Test of reverseWords(CharSequence, StringBuilder), of class
+     * WordReverser, for Strings and other sequences, growing the buffer past
+     * its initial capacity and reusing it for shorter input afterwards.
+     */
+    @org.testng.annotations.Test
+    public void testReverseWordsCharSequence() {
+        Random random = new Random(5);
+        WordReverser instance = new WordReverser(16);
+        int[] lengths = { 0, 5, 16, 17, 100, 1000, 3, 5000, 40 };
+        for (int length : lengths) {
+            byte[] bytes = randomText(random, length);
+            String text = new String(bytes, StandardCharsets.ISO_8859_1);
+            String expected = WordReversal.reverseWordsInString(text);
+
+            StringBuilder output = new StringBuilder("prefix:");
+            instance.reverseWords(text, output);
+            assertEquals(output.toString(), "prefix:" + expected);
+
+            output.setLength(0);
+            instance.reverseWords(new StringBuilder(text), output);
+            assertEquals(output.toString(), expected, "length " + length);
+
+            output.setLength(0);
+            instance.reverseWords(CharBuffer.wrap(text), output);
+            assertEquals(output.toString(), expected, "length " + length);
+
+            assertEquals(instance.reverseWords(text), expected);
+        }
+    }
+
+    private static byte[] randomText(Random random, int length) {
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = random.nextInt(4) == 0
+                    ? (byte) random.nextInt(256)
+                    : TRICKY[random.nextInt(TRICKY.length)];
+        }
+        return text;
+    }
+
+    private static String describe(byte[] text, int from, int to) {
+        return Arrays.toString(text) + " from " + from + " to " + to;
+    }
+}